@@ -0,0 +1,71 @@
+package org.apache.cordova;
+
+import android.util.Log;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Stand-in for the callback handle of cordova-android. Results go to the web view, if any; tests
+ * subclass it and override {@link #sendPluginResult} to record them instead.
+ */
+public class CallbackContext {
+	private static final String LOG_TAG = "CordovaPlugin";
+
+	private final String callbackId;
+	private final CordovaWebView webView;
+	protected boolean finished;
+
+	public CallbackContext(String callbackId, CordovaWebView webView) {
+		this.callbackId = callbackId;
+		this.webView = webView;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	public String getCallbackId() {
+		return callbackId;
+	}
+
+	public void sendPluginResult(PluginResult pluginResult) {
+		synchronized (this) {
+			if (finished) {
+				Log.w(LOG_TAG, "Attempted to send a second callback for ID: " + callbackId + "\nResult was: " + pluginResult.getMessage());
+				return;
+			}
+			finished = !pluginResult.getKeepCallback();
+		}
+		if (webView != null) {
+			webView.sendPluginResult(pluginResult, callbackId);
+		}
+	}
+
+	public void success() {
+		sendPluginResult(new PluginResult(PluginResult.Status.OK));
+	}
+
+	public void success(String message) {
+		sendPluginResult(new PluginResult(PluginResult.Status.OK, message));
+	}
+
+	public void success(JSONObject message) {
+		sendPluginResult(new PluginResult(PluginResult.Status.OK, message));
+	}
+
+	public void success(JSONArray message) {
+		sendPluginResult(new PluginResult(PluginResult.Status.OK, message));
+	}
+
+	public void success(int message) {
+		sendPluginResult(new PluginResult(PluginResult.Status.OK, message));
+	}
+
+	public void error(String message) {
+		sendPluginResult(new PluginResult(PluginResult.Status.ERROR, message));
+	}
+
+	public void error(JSONObject message) {
+		sendPluginResult(new PluginResult(PluginResult.Status.ERROR, message));
+	}
+}
@@ -0,0 +1,23 @@
+package org.apache.cordova;
+
+import android.content.Context;
+import android.content.Intent;
+import androidx.appcompat.app.AppCompatActivity;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Stand-in for the interface cordova-android hands to plugins. Only the calls the plugin makes are
+ * declared, with the signatures of cordova-android 10 and later.
+ */
+public interface CordovaInterface {
+	/** Starts an activity whose result is passed to {@code command}'s {@code onActivityResult}. */
+	void startActivityForResult(CordovaPlugin command, Intent intent, int requestCode);
+
+	void setActivityResultCallback(CordovaPlugin plugin);
+
+	AppCompatActivity getActivity();
+
+	Context getContext();
+
+	ExecutorService getThreadPool();
+}
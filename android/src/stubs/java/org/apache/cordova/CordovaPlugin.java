@@ -0,0 +1,42 @@
+package org.apache.cordova;
+
+import android.content.Intent;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * Stand-in for the plugin base class of cordova-android, so the plugin compiles and can be driven
+ * from tests without a Cordova app. Tests assign {@link #cordova} and {@link #webView} directly, as
+ * cordova-android does before calling {@link #initialize}.
+ */
+public class CordovaPlugin {
+	public CordovaWebView webView;
+	public CordovaInterface cordova;
+
+	public void initialize(CordovaInterface cordova, CordovaWebView webView) {
+	}
+
+	/**
+	 * Executes an action called from JavaScript.
+	 *
+	 * @return Whether the action was valid.
+	 */
+	public boolean execute(String action, JSONArray args, CallbackContext callbackContext) throws JSONException {
+		return false;
+	}
+
+	public void onPause(boolean multitasking) {
+	}
+
+	public void onResume(boolean multitasking) {
+	}
+
+	public void onReset() {
+	}
+
+	public void onDestroy() {
+	}
+
+	public void onActivityResult(int requestCode, int resultCode, Intent intent) {
+	}
+}
@@ -0,0 +1,16 @@
+package org.apache.cordova;
+
+import android.content.Context;
+import android.view.View;
+
+/**
+ * Stand-in for the web view interface of cordova-android, reduced to what the plugin and
+ * {@link CallbackContext} call.
+ */
+public interface CordovaWebView {
+	View getView();
+
+	Context getContext();
+
+	void sendPluginResult(PluginResult cr, String callbackId);
+}
@@ -0,0 +1,93 @@
+package org.apache.cordova;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Stand-in for the result type of cordova-android. Messages are kept as they would be encoded for
+ * the JavaScript side.
+ */
+public class PluginResult {
+	private final int status;
+	private final String encodedMessage;
+	private final String strMessage;
+	private boolean keepCallback = false;
+
+	public PluginResult(Status status) {
+		this(status, status.getMessage());
+	}
+
+	public PluginResult(Status status, String message) {
+		this.status = status.ordinal();
+		this.encodedMessage = message == null ? "null" : JSONObject.quote(message);
+		this.strMessage = message;
+	}
+
+	public PluginResult(Status status, JSONArray message) {
+		this.status = status.ordinal();
+		this.encodedMessage = message.toString();
+		this.strMessage = null;
+	}
+
+	public PluginResult(Status status, JSONObject message) {
+		this.status = status.ordinal();
+		this.encodedMessage = message.toString();
+		this.strMessage = null;
+	}
+
+	public PluginResult(Status status, int i) {
+		this.status = status.ordinal();
+		this.encodedMessage = Integer.toString(i);
+		this.strMessage = null;
+	}
+
+	public void setKeepCallback(boolean b) {
+		this.keepCallback = b;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	/** Returns the message as JSON text. */
+	public String getMessage() {
+		return encodedMessage;
+	}
+
+	/** Returns the message if it is a string, else null. */
+	public String getStrMessage() {
+		return strMessage;
+	}
+
+	public boolean getKeepCallback() {
+		return keepCallback;
+	}
+
+	public enum Status {
+		NO_RESULT,
+		OK,
+		CLASS_NOT_FOUND_EXCEPTION,
+		ILLEGAL_ACCESS_EXCEPTION,
+		INSTANTIATION_EXCEPTION,
+		MALFORMED_URL_EXCEPTION,
+		IO_EXCEPTION,
+		INVALID_ACTION,
+		JSON_EXCEPTION,
+		ERROR;
+
+		String getMessage() {
+			switch (this) {
+				case NO_RESULT:
+					return "No result";
+				case OK:
+					return "OK";
+				case INVALID_ACTION:
+					return "Invalid action";
+				case JSON_EXCEPTION:
+					return "JSON error";
+				default:
+					return "Error";
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import android.os.Bundle;
+import androidx.media3.common.C;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class BufferPolicyTest {
+	@Test
+	public void fromOptions_withoutOptions_returnsDefault() {
+		assertSame(BufferPolicy.DEFAULT, BufferPolicy.fromOptions(null));
+		assertEquals(BufferPolicy.DEFAULT, BufferPolicy.fromOptions(new Bundle()));
+	}
+
+	@Test
+	public void fromOptions_appliesPresetThenOverrides() {
+		Bundle options = new Bundle();
+		options.putString("bufferPreset", BufferPolicy.PRESET_LOW_LATENCY_START);
+		options.putInt("maxBufferMs", 40000);
+
+		BufferPolicy policy = BufferPolicy.fromOptions(options);
+
+		assertEquals(new BufferPolicy(15000, 40000, 1000, 2000, C.LENGTH_UNSET, 0), policy);
+	}
+
+	@Test
+	public void fromOptions_dataSaverPreset_capsBytes() {
+		Bundle options = new Bundle();
+		options.putString("bufferPreset", BufferPolicy.PRESET_DATA_SAVER);
+
+		assertEquals(new BufferPolicy(10000, 20000, 2500, 5000, 8 * 1024 * 1024, 0), BufferPolicy.fromOptions(options));
+	}
+
+	@Test
+	public void fromOptions_unknownPreset_throws() {
+		Bundle options = new Bundle();
+		options.putString("bufferPreset", "fast");
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> BufferPolicy.fromOptions(options));
+		assertEquals("Unknown bufferPreset: fast", e.getMessage());
+	}
+
+	@Test
+	public void fromOptions_negativeDuration_throws() {
+		Bundle options = new Bundle();
+		options.putInt("backBufferMs", -1);
+
+		assertThrows(IllegalArgumentException.class, () -> BufferPolicy.fromOptions(options));
+	}
+
+	@Test
+	public void fromOptions_minBelowPlaybackThreshold_throws() {
+		Bundle options = new Bundle();
+		options.putInt("minBufferMs", 1000);
+		options.putInt("bufferForPlaybackMs", 2500);
+
+		assertThrows(IllegalArgumentException.class, () -> BufferPolicy.fromOptions(options));
+	}
+
+	@Test
+	public void fromOptions_maxBelowMin_throws() {
+		Bundle options = new Bundle();
+		options.putInt("minBufferMs", 30000);
+		options.putInt("maxBufferMs", 20000);
+
+		assertThrows(IllegalArgumentException.class, () -> BufferPolicy.fromOptions(options));
+	}
+}
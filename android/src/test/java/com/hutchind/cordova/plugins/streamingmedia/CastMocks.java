@@ -0,0 +1,21 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import androidx.mediarouter.media.MediaRouteSelector;
+import com.google.android.gms.cast.framework.CastContext;
+import com.google.android.gms.cast.framework.SessionManager;
+
+/** A {@link CastContext} without Google Play services, which never has a session. */
+final class CastMocks {
+	private CastMocks() {}
+
+	static CastContext createCastContext() {
+		SessionManager sessionManager = mock(SessionManager.class);
+		CastContext castContext = mock(CastContext.class);
+		when(castContext.getSessionManager()).thenReturn(sessionManager);
+		when(castContext.getMergedSelector()).thenReturn(MediaRouteSelector.EMPTY);
+		return castContext;
+	}
+}
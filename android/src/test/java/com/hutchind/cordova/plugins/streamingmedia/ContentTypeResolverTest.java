@@ -0,0 +1,95 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.os.Bundle;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.PlaybackException;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class ContentTypeResolverTest {
+	@Test
+	public void fromUrl_adaptiveExtensions() {
+		assertEquals(MimeTypes.APPLICATION_M3U8, ContentTypeResolver.fromUrl("https://cdn.example.com/live/master.m3u8"));
+		assertEquals(MimeTypes.APPLICATION_MPD, ContentTypeResolver.fromUrl("https://cdn.example.com/vod/manifest.mpd"));
+		assertEquals(MimeTypes.APPLICATION_SS, ContentTypeResolver.fromUrl("https://cdn.example.com/vod/movie.ism/Manifest"));
+	}
+
+	@Test
+	public void fromUrl_playlistInQuery() {
+		assertEquals(MimeTypes.APPLICATION_M3U8, ContentTypeResolver.fromUrl("https://player.example.com/play?src=live.m3u8"));
+	}
+
+	@Test
+	public void fromUrl_progressiveOrUnknown_returnsNull() {
+		assertNull(ContentTypeResolver.fromUrl("https://cdn.example.com/vod/movie.mp4"));
+		assertNull(ContentTypeResolver.fromUrl("https://cdn.example.com/stream?id=42"));
+	}
+
+	@Test
+	public void getKey_wildcardsIdSegments() {
+		assertEquals("cdn.example.com/video/*/master.m3u8",
+				ContentTypeResolver.getKey("https://cdn.example.com/video/abc123/master.m3u8?token=secret"));
+		assertEquals("cdn.example.com/vod/*.mp4", ContentTypeResolver.getKey("https://cdn.example.com/vod/12345.mp4"));
+		assertEquals("cdn.example.com/*/stream",
+				ContentTypeResolver.getKey("https://cdn.example.com/abcdefghijklmnopqrstuvwxyz/stream"));
+	}
+
+	@Test
+	public void getKey_sameForUrlsOfOnePattern() {
+		assertEquals(ContentTypeResolver.getKey("https://cdn.example.com/v/1001/index"),
+				ContentTypeResolver.getKey("https://cdn.example.com/v/2002/index"));
+	}
+
+	@Test
+	public void resolve_prefersMimeTypeOption() {
+		Bundle options = new Bundle();
+		options.putString("mimeType", MimeTypes.APPLICATION_MPD);
+
+		assertEquals(MimeTypes.APPLICATION_MPD, ContentTypeResolver.resolve("https://cdn.example.com/live/master.m3u8", options));
+	}
+
+	@Test
+	public void resolve_unknownUrl_returnsNull() {
+		Bundle options = new Bundle();
+		options.putBoolean("probeContentType", true);
+
+		assertNull(ContentTypeResolver.resolve("https://unprobed.example.com/stream/42", options));
+		assertNull(ContentTypeResolver.resolve("https://unprobed.example.com/stream/42", null));
+	}
+
+	@Test
+	public void resolve_usesProbedPatternOnlyWhenProbing() throws Exception {
+		MockWebServer server = new MockWebServer();
+		server.enqueue(new MockResponse().setHeader("Content-Type", "application/vnd.apple.mpegurl; charset=utf-8"));
+		server.start();
+		try {
+			String url = server.url("/probe-test/abc123/playlist").toString();
+			String samePatternUrl = server.url("/probe-test/def456/playlist").toString();
+			Bundle options = new Bundle();
+			options.putString("mediaUrl", url);
+			options.putBoolean("probeContentType", true);
+
+			ContentTypeResolver.probe(ApplicationProvider.getApplicationContext(), options);
+
+			assertEquals("HEAD", server.takeRequest().getMethod());
+			assertEquals(MimeTypes.APPLICATION_M3U8, ContentTypeResolver.resolve(samePatternUrl, options));
+			assertNull(ContentTypeResolver.resolve(samePatternUrl, new Bundle()));
+
+			ContentTypeResolver.onPlaybackFailed(MediaItem.fromUri(samePatternUrl),
+					new PlaybackException("Not a playlist", null, PlaybackException.ERROR_CODE_PARSING_MANIFEST_MALFORMED));
+
+			assertNull(ContentTypeResolver.resolve(url, options));
+		} finally {
+			server.shutdown();
+		}
+	}
+}
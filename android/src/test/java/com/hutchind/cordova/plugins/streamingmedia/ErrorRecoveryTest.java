@@ -0,0 +1,172 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.net.Uri;
+import android.os.Bundle;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.json.JSONArray;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+@UnstableApi
+@RunWith(AndroidJUnit4.class)
+public class ErrorRecoveryTest {
+	private static final String MEDIA_URL = "https://cdn1.example.com/live/stream";
+	private static final String FALLBACK_URL = "https://cdn2.example.com/live/stream.mpd";
+
+	@Test
+	public void classify_badHttpStatus_byResponseCode() {
+		assertEquals(ErrorRecovery.CATEGORY_NETWORK, ErrorRecovery.classify(buildHttpError(503)));
+		assertEquals(ErrorRecovery.CATEGORY_NETWORK, ErrorRecovery.classify(buildHttpError(408)));
+		assertEquals(ErrorRecovery.CATEGORY_NETWORK, ErrorRecovery.classify(buildHttpError(429)));
+		assertEquals(ErrorRecovery.CATEGORY_SOURCE, ErrorRecovery.classify(buildHttpError(403)));
+		assertEquals(ErrorRecovery.CATEGORY_SOURCE, ErrorRecovery.classify(buildHttpError(404)));
+	}
+
+	@Test
+	public void classify_badHttpStatusWithoutResponse_isNetwork() {
+		assertEquals(ErrorRecovery.CATEGORY_NETWORK,
+				ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_IO_BAD_HTTP_STATUS)));
+	}
+
+	@Test
+	public void classify_connectionErrors_areNetwork() {
+		assertEquals(ErrorRecovery.CATEGORY_NETWORK,
+				ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_FAILED)));
+		assertEquals(ErrorRecovery.CATEGORY_NETWORK,
+				ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_TIMEOUT)));
+		assertEquals(ErrorRecovery.CATEGORY_NETWORK,
+				ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_IO_UNSPECIFIED)));
+	}
+
+	@Test
+	public void classify_unplayableUrls_areSource() {
+		assertEquals(ErrorRecovery.CATEGORY_SOURCE, ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_IO_FILE_NOT_FOUND)));
+		assertEquals(ErrorRecovery.CATEGORY_SOURCE, ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_IO_NO_PERMISSION)));
+		assertEquals(ErrorRecovery.CATEGORY_SOURCE,
+				ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_IO_CLEARTEXT_NOT_PERMITTED)));
+		assertEquals(ErrorRecovery.CATEGORY_SOURCE, ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_BEHIND_LIVE_WINDOW)));
+	}
+
+	@Test
+	public void classify_parsingAndDrm_areSource() {
+		assertEquals(ErrorRecovery.CATEGORY_SOURCE,
+				ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_PARSING_CONTAINER_MALFORMED)));
+		assertEquals(ErrorRecovery.CATEGORY_SOURCE,
+				ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_PARSING_MANIFEST_UNSUPPORTED)));
+		assertEquals(ErrorRecovery.CATEGORY_SOURCE,
+				ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_DRM_LICENSE_ACQUISITION_FAILED)));
+	}
+
+	@Test
+	public void classify_decodingAndOutput_areDecoder() {
+		assertEquals(ErrorRecovery.CATEGORY_DECODER, ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_DECODER_INIT_FAILED)));
+		assertEquals(ErrorRecovery.CATEGORY_DECODER, ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_DECODING_FAILED)));
+		assertEquals(ErrorRecovery.CATEGORY_DECODER,
+				ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_AUDIO_TRACK_INIT_FAILED)));
+		assertEquals(ErrorRecovery.CATEGORY_DECODER,
+				ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_VIDEO_FRAME_PROCESSING_FAILED)));
+	}
+
+	@Test
+	public void classify_otherCodes_areOther() {
+		assertEquals(ErrorRecovery.CATEGORY_OTHER, ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_UNSPECIFIED)));
+		assertEquals(ErrorRecovery.CATEGORY_OTHER, ErrorRecovery.classify(buildError(PlaybackException.ERROR_CODE_TIMEOUT)));
+		assertEquals(ErrorRecovery.CATEGORY_OTHER, ErrorRecovery.classify(buildError(PlaybackException.CUSTOM_ERROR_CODE_BASE)));
+	}
+
+	@Test
+	public void onPlayerError_networkError_failsOverKeepingType() {
+		ExoPlayer player = mockPlayer(MimeTypes.APPLICATION_M3U8);
+		List<Boolean> outcomes = new ArrayList<>();
+		ErrorRecovery errorRecovery = ErrorRecovery.attach(player, buildOptions(),
+				(error, category, failedOver) -> outcomes.add(failedOver));
+
+		errorRecovery.onPlayerError(buildError(PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_FAILED));
+
+		MediaItem fallback = captureReplacement(player);
+		assertEquals(FALLBACK_URL, fallback.localConfiguration.uri.toString());
+		assertEquals(MEDIA_URL, fallback.mediaId);
+		assertEquals(MimeTypes.APPLICATION_M3U8, fallback.localConfiguration.mimeType);
+		verify(player).seekTo(0, 30000);
+		verify(player).prepare();
+		assertEquals(Collections.singletonList(true), outcomes);
+	}
+
+	@Test
+	public void onPlayerError_parsingError_resolvesFallbackType() {
+		ExoPlayer player = mockPlayer(MimeTypes.APPLICATION_M3U8);
+		ErrorRecovery errorRecovery = ErrorRecovery.attach(player, buildOptions(), null);
+
+		errorRecovery.onPlayerError(buildError(PlaybackException.ERROR_CODE_PARSING_MANIFEST_MALFORMED));
+
+		assertEquals(MimeTypes.APPLICATION_MPD, captureReplacement(player).localConfiguration.mimeType);
+	}
+
+	@Test
+	public void onPlayerError_withoutFallbacksLeft_reportsNoFailover() {
+		ExoPlayer player = mockPlayer(MimeTypes.APPLICATION_M3U8);
+		List<Boolean> outcomes = new ArrayList<>();
+		ErrorRecovery errorRecovery = ErrorRecovery.attach(player, buildOptions(),
+				(error, category, failedOver) -> outcomes.add(failedOver));
+
+		errorRecovery.onPlayerError(buildError(PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_FAILED));
+		errorRecovery.onPlayerError(buildError(PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_FAILED));
+		errorRecovery.onPlayerError(buildError(PlaybackException.ERROR_CODE_DECODING_FAILED));
+
+		assertEquals(Arrays.asList(true, false, false), outcomes);
+		verify(player, times(1)).prepare();
+	}
+
+	private static ExoPlayer mockPlayer(String mimeType) {
+		ExoPlayer player = mock(ExoPlayer.class);
+		when(player.getCurrentMediaItem()).thenReturn(new MediaItem.Builder().setUri(MEDIA_URL).setMimeType(mimeType).build());
+		when(player.getCurrentMediaItemIndex()).thenReturn(0);
+		when(player.getCurrentPosition()).thenReturn(30000L);
+		return player;
+	}
+
+	private static Bundle buildOptions() {
+		Bundle options = new Bundle();
+		options.putString("mediaUrl", MEDIA_URL);
+		options.putString("fallbackUrls", new JSONArray().put(FALLBACK_URL).toString());
+		return options;
+	}
+
+	private static MediaItem captureReplacement(ExoPlayer player) {
+		ArgumentCaptor<MediaItem> captor = ArgumentCaptor.forClass(MediaItem.class);
+		verify(player).replaceMediaItem(eq(0), captor.capture());
+		return captor.getValue();
+	}
+
+	private static PlaybackException buildError(int errorCode) {
+		return new PlaybackException("Test error", null, errorCode);
+	}
+
+	private static PlaybackException buildHttpError(int responseCode) {
+		HttpDataSource.InvalidResponseCodeException cause = new HttpDataSource.InvalidResponseCodeException(
+				responseCode, null, new IOException(), Collections.emptyMap(),
+				new DataSpec(Uri.parse("https://cdn.example.com/seg1.ts")), Util.EMPTY_BYTE_ARRAY);
+		return new PlaybackException("Test error", cause, PlaybackException.ERROR_CODE_IO_BAD_HTTP_STATUS);
+	}
+}
@@ -0,0 +1,47 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Context;
+import android.content.Intent;
+import androidx.appcompat.app.AppCompatActivity;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import org.apache.cordova.CordovaInterface;
+import org.apache.cordova.CordovaPlugin;
+
+/** Hosts the plugin in a test activity, running background work inline and keeping started activities. */
+class FakeCordova implements CordovaInterface {
+	final List<Intent> startedIntents = new ArrayList<>();
+
+	private final AppCompatActivity activity;
+	private final ExecutorService threadPool = MoreExecutors.newDirectExecutorService();
+
+	FakeCordova(AppCompatActivity activity) {
+		this.activity = activity;
+	}
+
+	@Override
+	public void startActivityForResult(CordovaPlugin command, Intent intent, int requestCode) {
+		startedIntents.add(intent);
+	}
+
+	@Override
+	public void setActivityResultCallback(CordovaPlugin plugin) {
+	}
+
+	@Override
+	public AppCompatActivity getActivity() {
+		return activity;
+	}
+
+	@Override
+	public Context getContext() {
+		return activity;
+	}
+
+	@Override
+	public ExecutorService getThreadPool() {
+		return threadPool;
+	}
+}
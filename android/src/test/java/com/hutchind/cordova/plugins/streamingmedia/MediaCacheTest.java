@@ -0,0 +1,72 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import static org.junit.Assert.assertEquals;
+
+import android.net.Uri;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSourceUtil;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.DefaultDataSource;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@UnstableApi
+@RunWith(AndroidJUnit4.class)
+public class MediaCacheTest {
+	private static final int SEGMENT_BYTES = 64 * 1024;
+
+	private MockWebServer server;
+	private DataSource.Factory dataSourceFactory;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		MediaCache mediaCache = MediaCache.getInstance(ApplicationProvider.getApplicationContext(), 0);
+		dataSourceFactory = mediaCache.buildDataSourceFactory(new DefaultDataSource.Factory(ApplicationProvider.getApplicationContext()));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.shutdown();
+	}
+
+	@Test
+	public void stats_countEachSegmentOnce() throws Exception {
+		server.enqueue(new MockResponse().setBody(new Buffer().write(new byte[SEGMENT_BYTES])));
+		Uri uri = Uri.parse(server.url("/vod/" + System.nanoTime() + "/seg1.ts").toString());
+		JSONObject before = MediaCache.getStats();
+
+		read(uri);
+		JSONObject afterMiss = MediaCache.getStats();
+		read(uri);
+		JSONObject afterHit = MediaCache.getStats();
+
+		assertEquals(1, afterMiss.getLong("missCount") - before.getLong("missCount"));
+		assertEquals(0, afterMiss.getLong("hitCount") - before.getLong("hitCount"));
+		assertEquals(SEGMENT_BYTES, afterMiss.getLong("missBytes") - before.getLong("missBytes"));
+		assertEquals(1, afterHit.getLong("hitCount") - afterMiss.getLong("hitCount"));
+		assertEquals(0, afterHit.getLong("missCount") - afterMiss.getLong("missCount"));
+		assertEquals(SEGMENT_BYTES, afterHit.getLong("hitBytes") - afterMiss.getLong("hitBytes"));
+		assertEquals(1, server.getRequestCount());
+	}
+
+	private void read(Uri uri) throws Exception {
+		DataSource dataSource = dataSourceFactory.createDataSource();
+		try {
+			dataSource.open(new DataSpec(uri));
+			DataSourceUtil.readToEnd(dataSource);
+		} finally {
+			dataSource.close();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * Serves generated media from an in-process HTTP server, so playback tests need no network and no
+ * checked-in binaries: three minutes of silent 16-bit PCM as {@code /progressive.wav}, and an HLS
+ * media playlist {@code /hls/index.m3u8} of packed MP3 segments. Query strings are ignored, so
+ * tests can make distinct URLs for the same media.
+ */
+final class MediaFixtures {
+	static final String PROGRESSIVE_PATH = "/progressive.wav";
+	static final String HLS_PATH = "/hls/index.m3u8";
+
+	static final long PROGRESSIVE_DURATION_MS = 180 * 1000;
+
+	private static final int WAV_SAMPLE_RATE = 8000;
+	private static final int MP3_SAMPLE_RATE = 44100;
+	private static final int SEGMENT_COUNT = 3;
+	private static final int SEGMENT_FRAME_COUNT = 153;
+	private static final int MP3_SAMPLES_PER_FRAME = 1152;
+	// MPEG-1 layer III, 128 kbit/s, 44.1 kHz, mono, no CRC or padding.
+	private static final byte[] MP3_FRAME_HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, (byte) 0xC0};
+	private static final int MP3_FRAME_SIZE = 144 * 128000 / MP3_SAMPLE_RATE;
+
+	private MediaFixtures() {}
+
+	/** Starts a server for the fixtures. The caller shuts it down. */
+	static MockWebServer startServer() throws IOException {
+		final byte[] wav = buildWav((int) (PROGRESSIVE_DURATION_MS / 1000));
+		final byte[] segment = buildMp3Segment(SEGMENT_FRAME_COUNT);
+		final String playlist = buildMediaPlaylist(SEGMENT_COUNT, (double) SEGMENT_FRAME_COUNT * MP3_SAMPLES_PER_FRAME / MP3_SAMPLE_RATE);
+
+		MockWebServer server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				String path = request.getRequestUrl() != null ? request.getRequestUrl().encodedPath() : null;
+				if (PROGRESSIVE_PATH.equals(path)) {
+					return buildResponse("audio/wav", wav);
+				} else if (HLS_PATH.equals(path)) {
+					return new MockResponse().setHeader("Content-Type", "application/vnd.apple.mpegurl").setBody(playlist);
+				} else if (path != null && path.matches("/hls/segment\\d+\\.mp3")) {
+					return buildResponse("audio/mpeg", segment);
+				}
+				return new MockResponse().setResponseCode(404);
+			}
+		});
+		server.start();
+		return server;
+	}
+
+	private static MockResponse buildResponse(String contentType, byte[] body) {
+		return new MockResponse().setHeader("Content-Type", contentType).setBody(new Buffer().write(body));
+	}
+
+	private static byte[] buildWav(int durationS) {
+		int dataSize = WAV_SAMPLE_RATE * 2 * durationS;
+		ByteBuffer wav = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+		wav.put("RIFF".getBytes()).putInt(36 + dataSize).put("WAVE".getBytes());
+		wav.put("fmt ".getBytes()).putInt(16)
+				.putShort((short) 1) // PCM
+				.putShort((short) 1) // Mono
+				.putInt(WAV_SAMPLE_RATE)
+				.putInt(WAV_SAMPLE_RATE * 2)
+				.putShort((short) 2)
+				.putShort((short) 16);
+		wav.put("data".getBytes()).putInt(dataSize);
+		// The samples are left zeroed, i.e. silence.
+		return wav.array();
+	}
+
+	private static byte[] buildMp3Segment(int frameCount) {
+		// Zeroed side information and main data decode to silence.
+		byte[] segment = new byte[frameCount * MP3_FRAME_SIZE];
+		for (int i = 0; i < frameCount; i++) {
+			System.arraycopy(MP3_FRAME_HEADER, 0, segment, i * MP3_FRAME_SIZE, MP3_FRAME_HEADER.length);
+		}
+		return segment;
+	}
+
+	private static String buildMediaPlaylist(int segmentCount, double segmentDurationS) {
+		StringBuilder playlist = new StringBuilder()
+				.append("#EXTM3U\n")
+				.append("#EXT-X-VERSION:3\n")
+				.append("#EXT-X-PLAYLIST-TYPE:VOD\n")
+				.append("#EXT-X-TARGETDURATION:").append((int) Math.ceil(segmentDurationS)).append('\n')
+				.append("#EXT-X-MEDIA-SEQUENCE:0\n");
+		for (int i = 0; i < segmentCount; i++) {
+			playlist.append(String.format(Locale.US, "#EXTINF:%.3f,\n", segmentDurationS))
+					.append("segment").append(i).append(".mp3\n");
+		}
+		return playlist.append("#EXT-X-ENDLIST\n").toString();
+	}
+}
@@ -0,0 +1,147 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.os.Bundle;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.test.utils.robolectric.ShadowMediaCodecConfig;
+import androidx.media3.test.utils.robolectric.TestPlayerRunHelper;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.Arrays;
+import java.util.Locale;
+import okhttp3.mockwebserver.MockWebServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ActivityController;
+
+/**
+ * Measures prepare-to-ready time of pooled and unpooled players against {@link MediaFixtures}, and
+ * the cost of turning {@code playVideo} options into the extras and media item a play starts with.
+ *
+ * <p>Skipped unless run with {@code -Pbenchmark}. Times are wall-clock under Robolectric, so only
+ * compare them with runs on the same machine.
+ */
+@UnstableApi
+@RunWith(AndroidJUnit4.class)
+public class PlaybackBenchmark {
+	private static final int WARMUP_RUNS = 3;
+	private static final int MEASURED_RUNS = 15;
+	private static final int OPTION_WARMUP_ITERATIONS = 2000;
+	private static final int OPTION_MEASURED_ITERATIONS = 20000;
+
+	@Rule
+	public final ShadowMediaCodecConfig mediaCodecConfig = ShadowMediaCodecConfig.forAllSupportedMimeTypes();
+
+	private Context context;
+	private MockWebServer server;
+
+	@Before
+	public void setUp() throws Exception {
+		assumeTrue("Run with -Pbenchmark", Boolean.getBoolean("benchmark"));
+		context = ApplicationProvider.getApplicationContext();
+		server = MediaFixtures.startServer();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (server != null) {
+			server.shutdown();
+		}
+	}
+
+	@Test
+	public void prepareToReady_progressive() throws Exception {
+		measurePrepareToReady("progressive, new player", MediaFixtures.PROGRESSIVE_PATH, 0);
+		measurePrepareToReady("progressive, pooled player", MediaFixtures.PROGRESSIVE_PATH, 1);
+	}
+
+	@Test
+	public void prepareToReady_hls() throws Exception {
+		measurePrepareToReady("hls, new player", MediaFixtures.HLS_PATH, 0);
+		measurePrepareToReady("hls, pooled player", MediaFixtures.HLS_PATH, 1);
+	}
+
+	@Test
+	public void optionParsing() throws Exception {
+		JSONObject options = new JSONObject()
+				.put("shouldAutoClose", true)
+				.put("controls", true)
+				.put("startFrom", 30)
+				.put("bufferPreset", BufferPolicy.PRESET_LOW_LATENCY_START)
+				.put("maxBufferMs", 40000)
+				.put("live", new JSONObject().put("targetOffsetMs", 3000))
+				.put("items", new JSONArray()
+						.put(new JSONObject().put("url", "https://cdn.example.com/live/master.m3u8").put("startFrom", 12))
+						.put("https://cdn.example.com/vod/next.m3u8"));
+		JSONArray args = new JSONArray().put("https://cdn.example.com/live/master.m3u8").put(options);
+
+		ActivityController<AppCompatActivity> controller = Robolectric.buildActivity(AppCompatActivity.class);
+		controller.get().setTheme(androidx.appcompat.R.style.Theme_AppCompat_Light_NoActionBar);
+		FakeCordova cordova = new FakeCordova(controller.setup().get());
+		StreamingMedia plugin = new StreamingMedia();
+		plugin.cordova = cordova;
+
+		for (int i = 0; i < OPTION_WARMUP_ITERATIONS; i++) {
+			parseOptions(plugin, cordova, args);
+		}
+		long startNs = System.nanoTime();
+		for (int i = 0; i < OPTION_MEASURED_ITERATIONS; i++) {
+			parseOptions(plugin, cordova, args);
+		}
+		long elapsedNs = System.nanoTime() - startNs;
+		controller.destroy();
+
+		report(String.format(Locale.US, "option parsing: %.1f us per play", elapsedNs / 1000.0 / OPTION_MEASURED_ITERATIONS));
+	}
+
+	/**
+	 * Does what {@code playVideo} and the activity do with the options before any player exists:
+	 * validating them into extras, then building the media item.
+	 */
+	private static void parseOptions(StreamingMedia plugin, FakeCordova cordova, JSONArray args) throws Exception {
+		plugin.execute(StreamingMedia.ACTION_PLAY_VIDEO, args, new RecordingCallbackContext());
+		Bundle extras = cordova.startedIntents.remove(0).getExtras();
+		PlayerManager.buildMediaItem(extras.getString("mediaUrl"), extras);
+	}
+
+	private void measurePrepareToReady(String name, String path, int playerPoolSize) throws Exception {
+		Bundle options = new Bundle();
+		options.putInt("playerPoolSize", playerPoolSize);
+		PlayerPool.configure(options);
+		MediaItem mediaItem = PlayerManager.buildMediaItem(server.url(path).toString(), options);
+
+		long[] runsMs = new long[MEASURED_RUNS];
+		for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+			ExoPlayer player = PlayerPool.acquire(context, options);
+			player.setMediaItem(mediaItem);
+			long startNs = System.nanoTime();
+			player.prepare();
+			TestPlayerRunHelper.run(player).untilState(Player.STATE_READY);
+			long elapsedMs = (System.nanoTime() - startNs) / 1000000;
+			PlayerPool.release(player);
+			if (i >= WARMUP_RUNS) {
+				runsMs[i - WARMUP_RUNS] = elapsedMs;
+			}
+		}
+
+		Arrays.sort(runsMs);
+		report(String.format(Locale.US, "prepare to ready, %s: median %d ms, min %d ms, max %d ms",
+				name, runsMs[MEASURED_RUNS / 2], runsMs[0], runsMs[MEASURED_RUNS - 1]));
+	}
+
+	private static void report(String line) {
+		System.out.println("benchmark " + line);
+	}
+}
@@ -0,0 +1,182 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.SimpleBasePlayer;
+import androidx.media3.common.util.UnstableApi;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.collect.ImmutableList;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.apache.cordova.PluginResult;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@UnstableApi
+@RunWith(AndroidJUnit4.class)
+public class PlaybackEventsTest {
+	private static final int INTERVAL_MS = 1000;
+
+	private FakePlayer player;
+	private RecordingCallbackContext callback;
+
+	@Before
+	public void setUp() {
+		player = new FakePlayer();
+		callback = new RecordingCallbackContext();
+		PlaybackEvents.setCallback(callback, INTERVAL_MS);
+		PlaybackEvents.attach(player, "video");
+
+		// Starts each test right after an event went out, so the next ones have to wait a full interval.
+		player.setPlaybackState(Player.STATE_BUFFERING);
+		while (callback.results.isEmpty()) {
+			shadowOf(Looper.getMainLooper()).runOneTask();
+		}
+		callback.results.clear();
+	}
+
+	@After
+	public void tearDown() {
+		PlaybackEvents.detach(player);
+		PlaybackEvents.setCallback(null, INTERVAL_MS);
+	}
+
+	@Test
+	public void getIntervalMs_readsOption() throws Exception {
+		assertEquals(1000, PlaybackEvents.getIntervalMs(null));
+		assertEquals(1000, PlaybackEvents.getIntervalMs(new JSONObject()));
+		assertEquals(250, PlaybackEvents.getIntervalMs(new JSONObject().put("eventIntervalMs", 250)));
+		assertEquals(0, PlaybackEvents.getIntervalMs(new JSONObject().put("eventIntervalMs", 0)));
+	}
+
+	@Test
+	public void getIntervalMs_negative_throws() throws Exception {
+		JSONObject options = new JSONObject().put("eventIntervalMs", -1);
+
+		assertThrows(IllegalArgumentException.class, () -> PlaybackEvents.getIntervalMs(options));
+	}
+
+	@Test
+	public void events_areSentAtMostOncePerInterval() throws Exception {
+		player.setPlaybackState(Player.STATE_READY);
+
+		idleMainLooper(INTERVAL_MS / 2);
+		assertTrue(callback.results.isEmpty());
+
+		idleMainLooper(INTERVAL_MS / 2);
+		assertEquals(1, callback.results.size());
+		PluginResult result = callback.getLastResult();
+		assertEquals(PluginResult.Status.OK.ordinal(), result.getStatus());
+		assertTrue(result.getKeepCallback());
+		JSONObject event = callback.getLastJson();
+		assertEquals("state", event.getString("type"));
+		assertEquals("video", event.getString("source"));
+		assertEquals("ready", event.getString("state"));
+	}
+
+	@Test
+	public void events_withinInterval_areCoalescedKeepingTheError() throws Exception {
+		player.setPlaybackState(Player.STATE_READY);
+		player.setPlayerError(new PlaybackException("Connection lost", null, PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_FAILED));
+		player.setPlaybackState(Player.STATE_BUFFERING);
+
+		idleMainLooper(INTERVAL_MS);
+
+		assertEquals(1, callback.results.size());
+		JSONObject event = callback.getLastJson();
+		assertEquals("error", event.getString("type"));
+		assertEquals("network", event.getString("category"));
+		assertTrue(event.getString("error").startsWith("ERROR_CODE_IO_NETWORK_CONNECTION_FAILED"));
+		// The snapshot is taken when the event is sent, not when the error happened.
+		assertEquals("buffering", event.getString("state"));
+	}
+
+	@Test
+	public void events_afterDetach_areNotSent() {
+		PlaybackEvents.detach(player);
+		player.setPlaybackState(Player.STATE_READY);
+
+		idleMainLooper(10 * INTERVAL_MS);
+
+		assertTrue(callback.results.isEmpty());
+		assertFalse(callback.isFinished());
+	}
+
+	@Test
+	public void detach_dropsPendingError() {
+		player.setPlayerError(new PlaybackException("Connection lost", null, PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_FAILED));
+		PlaybackEvents.detach(player);
+
+		idleMainLooper(10 * INTERVAL_MS);
+
+		assertTrue(callback.results.isEmpty());
+	}
+
+	@Test
+	public void detach_lastPlayer_stopsTicker() {
+		PlaybackEvents.detach(player);
+
+		assertEquals(Duration.ZERO, shadowOf(Looper.getMainLooper()).getNextScheduledTaskTime());
+	}
+
+	@Test
+	public void setCallback_null_dropsPendingEvent() {
+		player.setPlaybackState(Player.STATE_READY);
+		PlaybackEvents.setCallback(null, INTERVAL_MS);
+		PlaybackEvents.setCallback(callback, INTERVAL_MS);
+
+		idleMainLooper(INTERVAL_MS / 2);
+
+		assertTrue(callback.results.isEmpty());
+	}
+
+	private static void idleMainLooper(long ms) {
+		shadowOf(Looper.getMainLooper()).idleFor(ms, TimeUnit.MILLISECONDS);
+	}
+
+	/** A player whose state is set by the test, notifying listeners like a real one. */
+	private static final class FakePlayer extends SimpleBasePlayer {
+		private State state = new State.Builder()
+				.setAvailableCommands(new Commands.Builder().addAllCommands().build())
+				.build();
+
+		FakePlayer() {
+			super(Looper.getMainLooper());
+		}
+
+		void setPlaybackState(@Player.State int playbackState) {
+			setState(state.buildUpon()
+					.setPlaylist(ImmutableList.of(new MediaItemData.Builder("item").build()))
+					.setPlayerError(null)
+					.setPlaybackState(playbackState)
+					.build());
+		}
+
+		void setPlayerError(PlaybackException error) {
+			setState(state.buildUpon()
+					.setPlaybackState(Player.STATE_IDLE)
+					.setPlayerError(error)
+					.build());
+		}
+
+		@Override
+		protected State getState() {
+			return state;
+		}
+
+		private void setState(State state) {
+			this.state = state;
+			invalidateState();
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Bundle;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.test.utils.robolectric.ShadowMediaCodecConfig;
+import androidx.media3.test.utils.robolectric.TestPlayerRunHelper;
+import androidx.media3.ui.PlayerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.mockwebserver.MockWebServer;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ActivityController;
+
+/** Plays {@link MediaFixtures} through a real local player, with a Cast context that never connects. */
+@UnstableApi
+@RunWith(AndroidJUnit4.class)
+public class PlayerManagerTest {
+	private static final long START_POSITION_MS = 90 * 1000;
+	// Playback goes on in real time while the test waits, so positions are checked within a margin.
+	private static final long POSITION_MARGIN_MS = 10 * 1000;
+
+	@Rule
+	public final ShadowMediaCodecConfig mediaCodecConfig = ShadowMediaCodecConfig.forAllSupportedMimeTypes();
+
+	private MockWebServer server;
+	private ActivityController<AppCompatActivity> controller;
+	private PlayerView playerView;
+	private Bundle options;
+	private PlayerManager playerManager;
+
+	@Before
+	public void setUp() throws Exception {
+		server = MediaFixtures.startServer();
+		controller = Robolectric.buildActivity(AppCompatActivity.class);
+		controller.get().setTheme(androidx.appcompat.R.style.Theme_AppCompat_Light_NoActionBar);
+		controller.setup();
+		playerView = new PlayerView(controller.get());
+		controller.get().setContentView(playerView);
+
+		options = new Bundle();
+		options.putInt("playerPoolSize", 1);
+		PlayerPool.configure(options);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (playerManager != null) {
+			playerManager.release();
+		}
+		Bundle noPool = new Bundle();
+		noPool.putInt("playerPoolSize", 0);
+		PlayerPool.configure(noPool);
+		controller.destroy();
+		server.shutdown();
+	}
+
+	@Test
+	public void queue_startsFirstItemFromItsStartPosition() throws Exception {
+		playerManager = createPlayerManager(START_POSITION_MS, 0);
+
+		ExoPlayer player = runUntilReady();
+
+		assertEquals(0, player.getCurrentMediaItemIndex());
+		assertEquals(2, player.getMediaItemCount());
+		assertPositionNear(START_POSITION_MS, player.getCurrentPosition());
+	}
+
+	@Test
+	public void queue_startPositionNearTheEnd_startsFromTheBeginning() throws Exception {
+		playerManager = createPlayerManager(MediaFixtures.PROGRESSIVE_DURATION_MS - 30 * 1000);
+
+		ExoPlayer player = runUntilReady();
+
+		assertPositionNear(0, player.getCurrentPosition());
+	}
+
+	@Test
+	public void stop_recordsFinishPositionOfEachItem() throws Exception {
+		playerManager = createPlayerManager(START_POSITION_MS, 0);
+		runUntilReady();
+
+		long finishAtMs = playerManager.stop();
+
+		assertPositionNear(START_POSITION_MS, finishAtMs);
+		JSONArray results = playerManager.getItemResults();
+		JSONObject first = results.getJSONObject(0);
+		assertEquals(getUrl(0), first.getString("url"));
+		assertTrue(first.getBoolean("played"));
+		assertEquals(finishAtMs / 1000.0, first.getDouble("finishAt"), 0);
+		JSONObject second = results.getJSONObject(1);
+		assertFalse(second.getBoolean("played"));
+		assertEquals(0, second.getDouble("finishAt"), 0);
+	}
+
+	@Test
+	public void stop_nearTheEnd_finishesAtZero() throws Exception {
+		playerManager = createPlayerManager(0);
+		ExoPlayer player = runUntilReady();
+		player.seekTo(MediaFixtures.PROGRESSIVE_DURATION_MS - 10 * 1000);
+		TestPlayerRunHelper.run(player).untilPendingCommandsAreFullyHandled();
+
+		assertEquals(0, playerManager.stop());
+		assertEquals(0, playerManager.getItemResults().getJSONObject(0).getDouble("finishAt"), 0);
+	}
+
+	@Test
+	public void release_returnsLocalPlayerToPool() throws Exception {
+		playerManager = createPlayerManager(0);
+		ExoPlayer player = runUntilReady();
+
+		playerManager.release();
+		playerManager = null;
+
+		assertNull(playerView.getPlayer());
+		ExoPlayer pooled = PlayerPool.acquire(controller.get(), options);
+		assertSame(player, pooled);
+		assertEquals(Player.STATE_IDLE, pooled.getPlaybackState());
+		assertEquals(0, pooled.getMediaItemCount());
+		PlayerPool.release(pooled);
+	}
+
+	@Test
+	public void preloadedPlayer_isReusedWithThisPlaysFirstItem() throws Exception {
+		ExoPlayer pooled = PlayerPool.acquire(controller.get(), options);
+		PlayerPool.release(pooled);
+		VideoPreloader.preload(controller.get(), getUrl(0), options, new RecordingCallbackContext());
+
+		Bundle itemOptions = new Bundle(options);
+		itemOptions.putString("live", "{\"targetOffsetMs\": 3000}");
+		List<MediaItem> mediaItems = new ArrayList<>();
+		mediaItems.add(PlayerManager.buildMediaItem(getUrl(0), itemOptions));
+		playerManager = new PlayerManager(controller.get(), playerView, CastMocks.createCastContext(), mediaItems,
+				StreamingMedia.DEFAULT_LANGUAGE, new long[] {0}, options);
+		ExoPlayer player = runUntilReady();
+
+		assertSame(pooled, player);
+		assertEquals(3000, player.getMediaItemAt(0).liveConfiguration.targetOffsetMs);
+	}
+
+	@Test
+	public void preloadedPlayer_withOtherOptions_isReleasedInsteadOfReused() throws Exception {
+		ExoPlayer pooled = PlayerPool.acquire(controller.get(), options);
+		PlayerPool.release(pooled);
+		RecordingCallbackContext preloadCallback = new RecordingCallbackContext();
+		VideoPreloader.preload(controller.get(), getUrl(0), options, preloadCallback);
+
+		options.putString("bufferPreset", BufferPolicy.PRESET_DATA_SAVER);
+		playerManager = createPlayerManager(0);
+
+		assertNotSame(pooled, playerView.getPlayer());
+		assertEquals(PluginResult.Status.ERROR.ordinal(), preloadCallback.getLastResult().getStatus());
+	}
+
+	@Test
+	public void buildMediaItem_setsTypeFromUrl() {
+		MediaItem mediaItem = PlayerManager.buildMediaItem("https://cdn.example.com/live/master.m3u8");
+
+		assertEquals(MimeTypes.APPLICATION_M3U8, mediaItem.localConfiguration.mimeType);
+		assertEquals(MediaItem.LiveConfiguration.UNSET, mediaItem.liveConfiguration);
+	}
+
+	@Test
+	public void buildMediaItem_progressive_leavesTypeToTheExtractors() {
+		assertNull(PlayerManager.buildMediaItem("https://cdn.example.com/vod/movie.mp4").localConfiguration.mimeType);
+	}
+
+	@Test
+	public void buildMediaItem_appliesLiveOption() {
+		Bundle options = new Bundle();
+		options.putString("live", "{\"targetOffsetMs\": 3000, \"maxPlaybackSpeed\": 1.04}");
+
+		MediaItem mediaItem = PlayerManager.buildMediaItem("https://cdn.example.com/live/master.m3u8", options);
+
+		assertEquals(3000, mediaItem.liveConfiguration.targetOffsetMs);
+		assertEquals(C.TIME_UNSET, mediaItem.liveConfiguration.minOffsetMs);
+		assertEquals(1.04f, mediaItem.liveConfiguration.maxPlaybackSpeed, 0.0001f);
+		assertEquals(C.RATE_UNSET, mediaItem.liveConfiguration.minPlaybackSpeed, 0);
+	}
+
+	@Test
+	public void buildMediaItem_invalidLiveOption_keepsStreamDefaults() {
+		Bundle options = new Bundle();
+		options.putString("live", "not json");
+
+		MediaItem mediaItem = PlayerManager.buildMediaItem("https://cdn.example.com/live/master.m3u8", options);
+
+		assertEquals(MediaItem.LiveConfiguration.UNSET, mediaItem.liveConfiguration);
+	}
+
+	private PlayerManager createPlayerManager(long... startPositionsMs) {
+		List<MediaItem> mediaItems = new ArrayList<>();
+		for (int i = 0; i < startPositionsMs.length; i++) {
+			mediaItems.add(PlayerManager.buildMediaItem(getUrl(i), options));
+		}
+		return new PlayerManager(controller.get(), playerView, CastMocks.createCastContext(), mediaItems,
+				StreamingMedia.DEFAULT_LANGUAGE, startPositionsMs, options);
+	}
+
+	/** Runs until the local player is ready after any start position seek. */
+	private ExoPlayer runUntilReady() throws Exception {
+		ExoPlayer player = (ExoPlayer) playerView.getPlayer();
+		TestPlayerRunHelper.run(player).untilState(Player.STATE_READY);
+		TestPlayerRunHelper.run(player).untilPendingCommandsAreFullyHandled();
+		TestPlayerRunHelper.run(player).untilState(Player.STATE_READY);
+		return player;
+	}
+
+	private String getUrl(int index) {
+		return server.url(MediaFixtures.PROGRESSIVE_PATH + "?item=" + index).toString();
+	}
+
+	private static void assertPositionNear(long expectedMs, long actualMs) {
+		assertTrue("position " + actualMs + " ms, expected " + expectedMs + " ms",
+				actualMs >= expectedMs && actualMs < expectedMs + POSITION_MARGIN_MS);
+	}
+}
@@ -0,0 +1,33 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/** Keeps the results the plugin sends, in order, instead of passing them to a web view. */
+class RecordingCallbackContext extends CallbackContext {
+	final List<PluginResult> results = new ArrayList<>();
+
+	RecordingCallbackContext() {
+		super("StreamingMedia0", null);
+	}
+
+	@Override
+	public void sendPluginResult(PluginResult pluginResult) {
+		if (!isFinished()) {
+			results.add(pluginResult);
+		}
+		super.sendPluginResult(pluginResult);
+	}
+
+	PluginResult getLastResult() {
+		return results.get(results.size() - 1);
+	}
+
+	JSONObject getLastJson() throws JSONException {
+		return new JSONObject(getLastResult().getMessage());
+	}
+}
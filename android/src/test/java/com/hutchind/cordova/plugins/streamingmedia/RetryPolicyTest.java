@@ -0,0 +1,105 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import android.net.Uri;
+import android.os.Bundle;
+import androidx.media3.common.C;
+import androidx.media3.common.ParserException;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.exoplayer.source.LoadEventInfo;
+import androidx.media3.exoplayer.source.MediaLoadData;
+import androidx.media3.exoplayer.upstream.LoadErrorHandlingPolicy.LoadErrorInfo;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.IOException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class RetryPolicyTest {
+	@Test
+	public void fromOptions_withoutOptions_returnsDefault() {
+		assertSame(RetryPolicy.DEFAULT, RetryPolicy.fromOptions(null));
+		assertEquals(RetryPolicy.DEFAULT, RetryPolicy.fromOptions(new Bundle()));
+	}
+
+	@Test
+	public void fromOptions_readsOptions() {
+		Bundle options = new Bundle();
+		options.putInt("maxRetries", 5);
+		options.putInt("retryBaseDelayMs", 250);
+		options.putInt("retryMaxDelayMs", 4000);
+
+		assertEquals(new RetryPolicy(5, 250, 4000), RetryPolicy.fromOptions(options));
+	}
+
+	@Test
+	public void fromOptions_maxRetriesOutOfRange_throws() {
+		Bundle negative = new Bundle();
+		negative.putInt("maxRetries", -1);
+		Bundle tooMany = new Bundle();
+		tooMany.putInt("maxRetries", 21);
+
+		assertThrows(IllegalArgumentException.class, () -> RetryPolicy.fromOptions(negative));
+		assertThrows(IllegalArgumentException.class, () -> RetryPolicy.fromOptions(tooMany));
+	}
+
+	@Test
+	public void fromOptions_nonPositiveBaseDelay_throws() {
+		Bundle options = new Bundle();
+		options.putInt("retryBaseDelayMs", 0);
+
+		assertThrows(IllegalArgumentException.class, () -> RetryPolicy.fromOptions(options));
+	}
+
+	@Test
+	public void fromOptions_maxDelayBelowBaseDelay_throws() {
+		Bundle options = new Bundle();
+		options.putInt("retryBaseDelayMs", 2000);
+		options.putInt("retryMaxDelayMs", 1000);
+
+		assertThrows(IllegalArgumentException.class, () -> RetryPolicy.fromOptions(options));
+	}
+
+	@Test
+	public void getRetryDelayMsFor_backsOffExponentiallyWithJitter() {
+		RetryPolicy policy = new RetryPolicy(6, 1000, 16000);
+		long[] fullDelaysMs = {1000, 2000, 4000, 8000, 16000, 16000};
+
+		for (int i = 0; i < fullDelaysMs.length; i++) {
+			for (int run = 0; run < 100; run++) {
+				long delayMs = policy.getRetryDelayMsFor(buildErrorInfo(new IOException(), i + 1));
+				assertTrue("retry " + (i + 1) + " waited " + delayMs,
+						delayMs >= fullDelaysMs[i] / 2 && delayMs <= fullDelaysMs[i]);
+			}
+		}
+	}
+
+	@Test
+	public void getRetryDelayMsFor_afterMaxRetries_givesUp() {
+		RetryPolicy policy = new RetryPolicy(2, 1000, 16000);
+
+		assertTrue(policy.getRetryDelayMsFor(buildErrorInfo(new IOException(), 2)) != C.TIME_UNSET);
+		assertEquals(C.TIME_UNSET, policy.getRetryDelayMsFor(buildErrorInfo(new IOException(), 3)));
+	}
+
+	@Test
+	public void getRetryDelayMsFor_parserError_isNotRetried() {
+		ParserException error = ParserException.createForMalformedContainer("bad box", null);
+
+		assertEquals(C.TIME_UNSET, RetryPolicy.DEFAULT.getRetryDelayMsFor(buildErrorInfo(error, 1)));
+	}
+
+	@Test
+	public void getMinimumLoadableRetryCount_isMaxRetries() {
+		assertEquals(7, new RetryPolicy(7, 1000, 16000).getMinimumLoadableRetryCount(C.DATA_TYPE_MEDIA));
+	}
+
+	private static LoadErrorInfo buildErrorInfo(IOException error, int errorCount) {
+		LoadEventInfo loadEventInfo = new LoadEventInfo(0, new DataSpec(Uri.parse("https://cdn.example.com/seg1.ts")), 0);
+		return new LoadErrorInfo(loadEventInfo, new MediaLoadData(C.DATA_TYPE_MEDIA), error, errorCount);
+	}
+}
@@ -0,0 +1,185 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mockStatic;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.os.Bundle;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.test.utils.robolectric.ShadowMediaCodecConfig;
+import androidx.media3.test.utils.robolectric.TestPlayerRunHelper;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.gms.cast.framework.CastButtonFactory;
+import com.google.android.gms.cast.framework.CastContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import okhttp3.mockwebserver.MockWebServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockedStatic;
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ActivityController;
+
+/** Launches the activity as the plugin does, with Cast stubbed out since Robolectric has no Play services. */
+@UnstableApi
+@RunWith(AndroidJUnit4.class)
+public class SimpleVideoStreamTest {
+	@Rule
+	public final ShadowMediaCodecConfig mediaCodecConfig = ShadowMediaCodecConfig.forAllSupportedMimeTypes();
+
+	private MockWebServer server;
+	private MockedStatic<CastContext> castContextMock;
+	private MockedStatic<CastButtonFactory> castButtonFactoryMock;
+
+	@Before
+	public void setUp() throws Exception {
+		server = MediaFixtures.startServer();
+		CastContext castContext = CastMocks.createCastContext();
+		castContextMock = mockStatic(CastContext.class);
+		castContextMock.when(() -> CastContext.getSharedInstance(any(Context.class))).thenReturn(castContext);
+		castButtonFactoryMock = mockStatic(CastButtonFactory.class);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		castButtonFactoryMock.close();
+		castContextMock.close();
+		server.shutdown();
+	}
+
+	@Test
+	public void close_returnsFinishPositionAndItems() throws Exception {
+		Intent intent = buildIntent();
+		intent.putExtra("startFrom", 90.0);
+		ActivityController<SimpleVideoStream> controller = Robolectric.buildActivity(SimpleVideoStream.class, intent).setup();
+		SimpleVideoStream activity = controller.get();
+		ExoPlayer player = (ExoPlayer) activity.playerView.getPlayer();
+		TestPlayerRunHelper.run(player).untilState(Player.STATE_READY);
+		TestPlayerRunHelper.run(player).untilPendingCommandsAreFullyHandled();
+		TestPlayerRunHelper.run(player).untilState(Player.STATE_READY);
+
+		activity.findViewById(R.id.exo_close).performClick();
+
+		assertTrue(activity.isFinishing());
+		assertEquals(Activity.RESULT_OK, shadowOf(activity).getResultCode());
+		Intent result = shadowOf(activity).getResultIntent();
+		long finishAtMs = result.getLongExtra("finishAt", -1);
+		assertTrue("finished at " + finishAtMs, finishAtMs >= 90 * 1000 && finishAtMs < 100 * 1000);
+		JSONArray items = new JSONArray(result.getStringExtra("items"));
+		assertEquals(1, items.length());
+		assertTrue(items.getJSONObject(0).getBoolean("played"));
+		assertTrue(new JSONObject(result.getStringExtra("qoe")).length() > 0);
+		controller.destroy();
+	}
+
+	@Test
+	public void queue_playsItemsInOrderFromTheFirst() throws Exception {
+		JSONArray items = new JSONArray()
+				.put(new JSONObject().put("url", server.url(MediaFixtures.PROGRESSIVE_PATH + "?item=0").toString()))
+				.put(server.url(MediaFixtures.HLS_PATH).toString());
+		Intent intent = buildIntent();
+		intent.putExtra("items", items.toString());
+		ActivityController<SimpleVideoStream> controller = Robolectric.buildActivity(SimpleVideoStream.class, intent).setup();
+		ExoPlayer player = (ExoPlayer) controller.get().playerView.getPlayer();
+
+		TestPlayerRunHelper.run(player).untilState(Player.STATE_READY);
+
+		assertEquals(2, player.getMediaItemCount());
+		assertEquals(0, player.getCurrentMediaItemIndex());
+		controller.destroy();
+	}
+
+	@Test
+	public void withoutMediaUrl_finishes() {
+		ActivityController<SimpleVideoStream> controller = Robolectric.buildActivity(SimpleVideoStream.class).setup();
+
+		assertTrue(controller.get().isFinishing());
+		controller.destroy();
+	}
+
+	@Test
+	public void withoutCastContext_destroysThroughSuper() {
+		castContextMock.when(() -> CastContext.getSharedInstance(any(Context.class))).thenThrow(new RuntimeException("No Play services"));
+		List<Activity> destroyed = new ArrayList<>();
+		Application application = ApplicationProvider.getApplicationContext();
+		application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+			@Override
+			public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+			}
+
+			@Override
+			public void onActivityStarted(Activity activity) {
+			}
+
+			@Override
+			public void onActivityResumed(Activity activity) {
+			}
+
+			@Override
+			public void onActivityPaused(Activity activity) {
+			}
+
+			@Override
+			public void onActivityStopped(Activity activity) {
+			}
+
+			@Override
+			public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+			}
+
+			@Override
+			public void onActivityDestroyed(Activity activity) {
+				destroyed.add(activity);
+			}
+		});
+		ActivityController<SimpleVideoStream> controller = Robolectric.buildActivity(SimpleVideoStream.class).setup();
+
+		controller.destroy();
+
+		assertEquals(Collections.singletonList(controller.get()), destroyed);
+	}
+
+	@Test
+	public void orientation_defaultsToLandscape() {
+		ActivityController<SimpleVideoStream> controller = Robolectric.buildActivity(SimpleVideoStream.class, buildIntent()).setup();
+
+		assertEquals(ActivityInfo.SCREEN_ORIENTATION_SENSOR_LANDSCAPE, controller.get().getRequestedOrientation());
+		controller.destroy();
+	}
+
+	@Test
+	public void orientation_fromOption() {
+		ActivityController<SimpleVideoStream> portrait = Robolectric.buildActivity(SimpleVideoStream.class,
+				buildIntent().putExtra("orientation", "portrait")).setup();
+		assertEquals(ActivityInfo.SCREEN_ORIENTATION_SENSOR_PORTRAIT, portrait.get().getRequestedOrientation());
+		portrait.destroy();
+
+		ActivityController<SimpleVideoStream> any = Robolectric.buildActivity(SimpleVideoStream.class,
+				buildIntent().putExtra("orientation", "any")).setup();
+		assertEquals(ActivityInfo.SCREEN_ORIENTATION_FULL_USER, any.get().getRequestedOrientation());
+		any.destroy();
+	}
+
+	private Intent buildIntent() {
+		Intent intent = new Intent(ApplicationProvider.getApplicationContext(), SimpleVideoStream.class);
+		intent.putExtra("mediaUrl", server.url(MediaFixtures.PROGRESSIVE_PATH + "?item=0").toString());
+		intent.putExtra("shouldAutoClose", true);
+		return intent;
+	}
+}
@@ -0,0 +1,236 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.FrameLayout;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.media3.common.Player;
+import androidx.media3.ui.PlayerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ActivityController;
+
+@RunWith(AndroidJUnit4.class)
+public class StreamingMediaTest {
+	private ActivityController<AppCompatActivity> controller;
+	private FakeCordova cordova;
+	private StreamingMedia plugin;
+	private RecordingCallbackContext callback;
+
+	@Before
+	public void setUp() {
+		controller = Robolectric.buildActivity(AppCompatActivity.class);
+		controller.get().setTheme(androidx.appcompat.R.style.Theme_AppCompat_Light_NoActionBar);
+		cordova = new FakeCordova(controller.setup().get());
+		plugin = new StreamingMedia();
+		plugin.cordova = cordova;
+		callback = new RecordingCallbackContext();
+	}
+
+	@After
+	public void tearDown() {
+		plugin.onDestroy();
+		PlaybackEvents.setCallback(null, 0);
+		controller.destroy();
+	}
+
+	@Test
+	public void execute_unsupportedAction_fails() throws Exception {
+		assertFalse(plugin.execute("rewind", new JSONArray(), callback));
+
+		assertError("streamingMedia.rewind is not a supported method.");
+	}
+
+	@Test
+	public void playVideo_startsActivityWithOptions() throws Exception {
+		JSONObject options = new JSONObject()
+				.put("shouldAutoClose", true)
+				.put("startFrom", 12)
+				.put("live", new JSONObject().put("targetOffsetMs", 3000));
+		JSONArray args = new JSONArray().put("https://cdn.example.com/live/master.m3u8").put(options);
+
+		assertTrue(plugin.execute(StreamingMedia.ACTION_PLAY_VIDEO, args, callback));
+
+		assertTrue(callback.results.isEmpty());
+		assertEquals(1, cordova.startedIntents.size());
+		Intent intent = cordova.startedIntents.get(0);
+		assertEquals(SimpleVideoStream.class.getName(), intent.getComponent().getClassName());
+		Bundle extras = intent.getExtras();
+		assertEquals("https://cdn.example.com/live/master.m3u8", extras.getString("mediaUrl"));
+		assertTrue(extras.getBoolean("shouldAutoClose"));
+		assertEquals(12, extras.getDouble("startFrom"), 0);
+		assertEquals(3000, new JSONObject(extras.getString("live")).getInt("targetOffsetMs"));
+	}
+
+	@Test
+	public void playVideo_queue_startsWithFirstItem() throws Exception {
+		JSONArray items = new JSONArray()
+				.put(new JSONObject().put("url", "https://cdn.example.com/vod/1.mp4").put("startFrom", 30))
+				.put("https://cdn.example.com/vod/2.mp4");
+		JSONArray args = new JSONArray().put(items);
+
+		assertTrue(plugin.execute(StreamingMedia.ACTION_PLAY_VIDEO, args, callback));
+
+		Bundle extras = cordova.startedIntents.get(0).getExtras();
+		assertEquals("https://cdn.example.com/vod/1.mp4", extras.getString("mediaUrl"));
+		assertEquals(2, new JSONArray(extras.getString("items")).length());
+	}
+
+	@Test
+	public void playVideo_emptyQueue_fails() throws Exception {
+		JSONArray args = new JSONArray().put(new JSONArray());
+
+		assertTrue(plugin.execute(StreamingMedia.ACTION_PLAY_VIDEO, args, callback));
+
+		assertError("No items to play.");
+		assertTrue(cordova.startedIntents.isEmpty());
+	}
+
+	@Test
+	public void playVideo_invalidBufferOptions_failsBeforeStartingActivity() throws Exception {
+		JSONObject options = new JSONObject().put("bufferPreset", "fast");
+		JSONArray args = new JSONArray().put("https://cdn.example.com/vod/movie.mp4").put(options);
+
+		assertTrue(plugin.execute(StreamingMedia.ACTION_PLAY_VIDEO, args, callback));
+
+		assertError("Unknown bufferPreset: fast");
+		assertTrue(cordova.startedIntents.isEmpty());
+	}
+
+	@Test
+	public void playAudio_inconsistentBufferOptions_failsBeforeStartingActivity() throws Exception {
+		JSONObject options = new JSONObject().put("minBufferMs", 30000).put("maxBufferMs", 20000);
+		JSONArray args = new JSONArray().put("https://cdn.example.com/radio.mp3").put(options);
+
+		assertTrue(plugin.execute(StreamingMedia.ACTION_PLAY_AUDIO, args, callback));
+
+		assertError("maxBufferMs must be at least minBufferMs");
+		assertTrue(cordova.startedIntents.isEmpty());
+	}
+
+	@Test
+	public void playAudio_invalidRetryOptions_failsBeforeStartingActivity() throws Exception {
+		JSONObject options = new JSONObject().put("maxRetries", 100);
+		JSONArray args = new JSONArray().put("https://cdn.example.com/radio.mp3").put(options);
+
+		assertTrue(plugin.execute(StreamingMedia.ACTION_PLAY_AUDIO, args, callback));
+
+		assertEquals(PluginResult.Status.ERROR.ordinal(), callback.getLastResult().getStatus());
+		assertTrue(cordova.startedIntents.isEmpty());
+	}
+
+	@Test
+	public void setEventListener_readsOptionsFromFirstArgument() throws Exception {
+		JSONArray args = new JSONArray().put(new JSONObject().put("eventIntervalMs", 250));
+
+		assertTrue(plugin.execute(StreamingMedia.ACTION_SET_EVENT_LISTENER, args, callback));
+
+		PluginResult result = callback.getLastResult();
+		assertEquals(PluginResult.Status.NO_RESULT.ordinal(), result.getStatus());
+		assertTrue(result.getKeepCallback());
+	}
+
+	@Test
+	public void setEventListener_negativeInterval_fails() throws Exception {
+		JSONArray args = new JSONArray().put(new JSONObject().put("eventIntervalMs", -1));
+
+		assertTrue(plugin.execute(StreamingMedia.ACTION_SET_EVENT_LISTENER, args, callback));
+
+		assertError("eventIntervalMs must not be negative");
+	}
+
+	@Test
+	public void setQoeListener_receivesUpdatesUntilDestroyed() throws Exception {
+		assertTrue(plugin.execute(StreamingMedia.ACTION_SET_QOE_LISTENER, new JSONArray(), callback));
+
+		StreamingMedia.sendQoeUpdate(new JSONObject().put("rebufferCount", 2));
+		assertEquals(2, callback.results.size());
+		assertEquals(2, callback.getLastJson().getInt("rebufferCount"));
+
+		plugin.onDestroy();
+		StreamingMedia.sendQoeUpdate(new JSONObject().put("rebufferCount", 3));
+		assertEquals(2, callback.results.size());
+	}
+
+	@Test
+	public void getNetworkStats_returnsCounters() throws Exception {
+		assertTrue(plugin.execute(StreamingMedia.ACTION_GET_NETWORK_STATS, new JSONArray(), callback));
+
+		JSONObject stats = callback.getLastJson();
+		assertTrue(stats.has("requests"));
+		assertTrue(stats.has("reuseRatio"));
+	}
+
+	@Test
+	public void onActivityResult_reportsFinishPosition() throws Exception {
+		JSONArray args = new JSONArray().put("https://cdn.example.com/vod/movie.mp4");
+		plugin.execute(StreamingMedia.ACTION_PLAY_VIDEO, args, callback);
+
+		Intent result = new Intent()
+				.putExtra("finishAt", 42500L)
+				.putExtra("items", "[]");
+		plugin.onActivityResult(7, AppCompatActivity.RESULT_OK, result);
+
+		JSONObject json = callback.getLastJson();
+		assertEquals(42.5, json.getDouble("finishAt"), 0);
+		assertEquals(0, json.getJSONArray("items").length());
+	}
+
+	@Test
+	public void inlinePlayer_pausesWithTheActivityAndResumesIfItWasPlaying() throws Exception {
+		Player player = createInlinePlayer();
+		assertTrue(plugin.execute(StreamingMedia.ACTION_PLAY_INLINE_PLAYER, new JSONArray(), callback));
+
+		plugin.onPause(false);
+		assertFalse(player.getPlayWhenReady());
+
+		plugin.onResume(false);
+		assertTrue(player.getPlayWhenReady());
+	}
+
+	@Test
+	public void inlinePlayer_notPlaying_staysPausedOnResume() throws Exception {
+		Player player = createInlinePlayer();
+
+		plugin.onPause(false);
+		plugin.onResume(false);
+
+		assertFalse(player.getPlayWhenReady());
+	}
+
+	/** Creates the inline player over a stand-in web view and returns its player. */
+	private Player createInlinePlayer() throws Exception {
+		FrameLayout container = new FrameLayout(controller.get());
+		View view = new View(controller.get());
+		container.addView(view);
+		controller.get().setContentView(container);
+		CordovaWebView webView = mock(CordovaWebView.class);
+		when(webView.getView()).thenReturn(view);
+		plugin.webView = webView;
+
+		JSONObject rect = new JSONObject().put("x", 0).put("y", 0).put("width", 320).put("height", 180);
+		assertTrue(plugin.execute(StreamingMedia.ACTION_CREATE_INLINE_PLAYER, new JSONArray().put(rect), callback));
+		return ((PlayerView) container.getChildAt(1)).getPlayer();
+	}
+
+	private void assertError(String message) {
+		PluginResult result = callback.getLastResult();
+		assertEquals(PluginResult.Status.ERROR.ordinal(), result.getStatus());
+		assertEquals(message, result.getStrMessage());
+	}
+}
@@ -0,0 +1,59 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.media3.common.C;
+import androidx.media3.common.util.NetworkTypeObserver;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter;
+import java.util.Map;
+
+/**
+ * Shares one {@link DefaultBandwidthMeter} between all local players and persists its estimate
+ * per network type, so the first session after an app restart starts from the last measured
+ * bandwidth instead of the conservative built-in default.
+ */
+@UnstableApi
+class BandwidthStore {
+	private static final String PREFS_NAME = "streaming_media_bandwidth";
+	private static final String KEY_PREFIX = "networkType_";
+
+	private static DefaultBandwidthMeter meter;
+
+	private BandwidthStore() {}
+
+	/** Returns the shared meter, seeded with the persisted estimates on first use. */
+	public static synchronized DefaultBandwidthMeter getMeter(Context context) {
+		if (meter == null) {
+			DefaultBandwidthMeter.Builder builder = new DefaultBandwidthMeter.Builder(context.getApplicationContext());
+			for (Map.Entry<String, ?> entry : getPrefs(context).getAll().entrySet()) {
+				if (entry.getKey().startsWith(KEY_PREFIX) && entry.getValue() instanceof Long) {
+					int networkType = Integer.parseInt(entry.getKey().substring(KEY_PREFIX.length()));
+					builder.setInitialBitrateEstimate(networkType, (Long) entry.getValue());
+				}
+			}
+			meter = builder.build();
+		}
+		return meter;
+	}
+
+	/** Persists the current estimate under the current network type. */
+	public static synchronized void save(Context context) {
+		if (meter == null) {
+			return;
+		}
+
+		int networkType = NetworkTypeObserver.getInstance(context).getNetworkType();
+		if (networkType == C.NETWORK_TYPE_UNKNOWN || networkType == C.NETWORK_TYPE_OFFLINE) {
+			return;
+		}
+
+		getPrefs(context).edit()
+				.putLong(KEY_PREFIX + networkType, meter.getBitrateEstimate())
+				.apply();
+	}
+
+	private static SharedPreferences getPrefs(Context context) {
+		return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+	}
+}
@@ -0,0 +1,131 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.os.Bundle;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultLoadControl;
+
+/**
+ * Buffering targets for the local player, taken from a named {@code bufferPreset} and then
+ * overridden by the individual {@code *Ms} / {@code targetBufferBytes} play options.
+ */
+@UnstableApi
+final class BufferPolicy {
+	public static final String PRESET_LOW_LATENCY_START = "lowLatencyStart";
+	public static final String PRESET_DATA_SAVER = "dataSaver";
+	public static final String PRESET_SMOOTH_LONG_FORM = "smoothLongForm";
+
+	public static final BufferPolicy DEFAULT = new BufferPolicy(
+			DefaultLoadControl.DEFAULT_MIN_BUFFER_MS,
+			DefaultLoadControl.DEFAULT_MAX_BUFFER_MS,
+			DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS,
+			DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS,
+			DefaultLoadControl.DEFAULT_TARGET_BUFFER_BYTES,
+			DefaultLoadControl.DEFAULT_BACK_BUFFER_DURATION_MS);
+
+	/** Starts on the first second of media and keeps a modest forward buffer. */
+	private static final BufferPolicy LOW_LATENCY_START = new BufferPolicy(15000, 30000, 1000, 2000, C.LENGTH_UNSET, 0);
+
+	/** Keeps little media ahead, so abandoned sessions waste less data and memory. */
+	static final BufferPolicy DATA_SAVER = new BufferPolicy(10000, 20000, 2500, 5000, 8 * 1024 * 1024, 0);
+
+	/** Buffers far ahead and keeps some media behind, for long sessions on devices with memory to spare. */
+	private static final BufferPolicy SMOOTH_LONG_FORM = new BufferPolicy(50000, 120000, 2500, 5000, C.LENGTH_UNSET, 30000);
+
+	public final int minBufferMs;
+	public final int maxBufferMs;
+	public final int bufferForPlaybackMs;
+	public final int bufferForPlaybackAfterRebufferMs;
+	public final int targetBufferBytes;
+	public final int backBufferMs;
+
+	BufferPolicy(int minBufferMs, int maxBufferMs, int bufferForPlaybackMs, int bufferForPlaybackAfterRebufferMs, int targetBufferBytes, int backBufferMs) {
+		this.minBufferMs = minBufferMs;
+		this.maxBufferMs = maxBufferMs;
+		this.bufferForPlaybackMs = bufferForPlaybackMs;
+		this.bufferForPlaybackAfterRebufferMs = bufferForPlaybackAfterRebufferMs;
+		this.targetBufferBytes = targetBufferBytes;
+		this.backBufferMs = backBufferMs;
+	}
+
+	/**
+	 * Reads the buffering options.
+	 *
+	 * @param options The play options.
+	 * @throws IllegalArgumentException If the preset is unknown or the values are inconsistent.
+	 */
+	public static BufferPolicy fromOptions(Bundle options) {
+		if (options == null) {
+			return DEFAULT;
+		}
+
+		BufferPolicy base = getPreset(options.getString("bufferPreset"));
+		BufferPolicy policy = new BufferPolicy(
+				options.getInt("minBufferMs", base.minBufferMs),
+				options.getInt("maxBufferMs", base.maxBufferMs),
+				options.getInt("bufferForPlaybackMs", base.bufferForPlaybackMs),
+				options.getInt("bufferForPlaybackAfterRebufferMs", base.bufferForPlaybackAfterRebufferMs),
+				options.getInt("targetBufferBytes", base.targetBufferBytes),
+				options.getInt("backBufferMs", base.backBufferMs));
+		policy.validate();
+		return policy;
+	}
+
+	private static BufferPolicy getPreset(String name) {
+		if (name == null) {
+			return DEFAULT;
+		}
+
+		switch (name) {
+			case PRESET_LOW_LATENCY_START:
+				return LOW_LATENCY_START;
+			case PRESET_DATA_SAVER:
+				return DATA_SAVER;
+			case PRESET_SMOOTH_LONG_FORM:
+				return SMOOTH_LONG_FORM;
+			default:
+				throw new IllegalArgumentException("Unknown bufferPreset: " + name);
+		}
+	}
+
+	/** Mirrors the checks in {@link DefaultLoadControl}, so bad options fail before an activity starts. */
+	private void validate() {
+		if (bufferForPlaybackMs < 0 || bufferForPlaybackAfterRebufferMs < 0 || backBufferMs < 0) {
+			throw new IllegalArgumentException("Buffer durations must not be negative");
+		}
+		if (minBufferMs < bufferForPlaybackMs || minBufferMs < bufferForPlaybackAfterRebufferMs) {
+			throw new IllegalArgumentException("minBufferMs must be at least bufferForPlaybackMs and bufferForPlaybackAfterRebufferMs");
+		}
+		if (maxBufferMs < minBufferMs) {
+			throw new IllegalArgumentException("maxBufferMs must be at least minBufferMs");
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof BufferPolicy)) {
+			return false;
+		}
+		BufferPolicy other = (BufferPolicy) o;
+		return minBufferMs == other.minBufferMs
+				&& maxBufferMs == other.maxBufferMs
+				&& bufferForPlaybackMs == other.bufferForPlaybackMs
+				&& bufferForPlaybackAfterRebufferMs == other.bufferForPlaybackAfterRebufferMs
+				&& targetBufferBytes == other.targetBufferBytes
+				&& backBufferMs == other.backBufferMs;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = minBufferMs;
+		result = 31 * result + maxBufferMs;
+		result = 31 * result + bufferForPlaybackMs;
+		result = 31 * result + bufferForPlaybackAfterRebufferMs;
+		result = 31 * result + targetBufferBytes;
+		result = 31 * result + backBufferMs;
+		return result;
+	}
+}
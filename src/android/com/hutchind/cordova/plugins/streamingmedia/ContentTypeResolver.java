@@ -0,0 +1,214 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Works out the MIME type of a media URL before playback, so the matching HLS, DASH, SmoothStreaming
+ * or progressive source is created up front instead of sniffing through every extractor.
+ *
+ * <p>In order: the {@code mimeType} play option, the URL itself ({@code .m3u8}, {@code .mpd},
+ * {@code .ism}), then, only when {@code probeContentType} is set, the type last probed for URLs of
+ * the same pattern. Patterns are the host and path with id-like segments wildcarded, so signed or
+ * per-title URLs of one CDN share an entry. Probing sends a HEAD request and refreshes the entry on
+ * every play, and an entry is dropped when media played with it cannot be parsed. Probed types are
+ * kept in memory and in shared preferences.
+ */
+@UnstableApi
+class ContentTypeResolver {
+	private static final String TAG = "ContentTypeResolver";
+	private static final String PREFS_NAME = "streaming_media_content_types";
+	private static final int PROBE_TIMEOUT_MS = 3 * 1000;
+	private static final int MAX_LITERAL_SEGMENT_LENGTH = 24;
+
+	private static final Map<String, String> cache = new HashMap<>();
+	private static SharedPreferences prefs;
+
+	private ContentTypeResolver() {}
+
+	/** Loads the persisted probe results, once. */
+	public static synchronized void load(Context context) {
+		if (prefs != null) {
+			return;
+		}
+
+		prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+		for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+			if (entry.getValue() instanceof String) {
+				cache.put(entry.getKey(), (String) entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Returns the MIME type to play {@code url} with, or null to let the player sniff the media.
+	 *
+	 * @param url The media URL.
+	 * @param options The play options, or null.
+	 */
+	@Nullable
+	public static String resolve(String url, @Nullable Bundle options) {
+		String mimeType = resolveExplicit(url, options);
+		if (mimeType != null || url == null || options == null || !options.getBoolean("probeContentType", false)) {
+			return mimeType;
+		}
+
+		synchronized (ContentTypeResolver.class) {
+			return cache.get(getKey(url));
+		}
+	}
+
+	/**
+	 * Drops the probed type of {@code mediaItem}'s pattern if {@code error} shows the media is not of
+	 * that type, so the next play probes again.
+	 */
+	public static void onPlaybackFailed(@Nullable MediaItem mediaItem, PlaybackException error) {
+		if (mediaItem == null || mediaItem.localConfiguration == null
+				|| error.errorCode < PlaybackException.ERROR_CODE_PARSING_CONTAINER_MALFORMED
+				|| error.errorCode > PlaybackException.ERROR_CODE_PARSING_MANIFEST_UNSUPPORTED) {
+			return;
+		}
+
+		String key = getKey(mediaItem.localConfiguration.uri.toString());
+		synchronized (ContentTypeResolver.class) {
+			if (cache.remove(key) != null && prefs != null) {
+				Log.w(TAG, "Dropping probed type of " + key + " after " + error.getErrorCodeName());
+				prefs.edit().remove(key).apply();
+			}
+		}
+	}
+
+	/**
+	 * Probes the URLs of a play, its {@code mediaUrl} and {@code items}, whose type cannot be
+	 * resolved yet. Blocks, so must not be called on the main thread.
+	 */
+	public static void probe(Context context, Bundle options) {
+		load(context);
+
+		String url = options.getString("mediaUrl");
+		if (url != null) {
+			probe(url, options);
+		}
+
+		String items = options.getString("items");
+		if (items == null) {
+			return;
+		}
+		try {
+			JSONArray queue = new JSONArray(items);
+			for (int i = 0; i < queue.length(); i++) {
+				JSONObject item = queue.optJSONObject(i);
+				String itemUrl = item != null ? item.optString("url", null) : queue.optString(i, null);
+				if (itemUrl != null && !itemUrl.equals(url)) {
+					probe(itemUrl, options);
+				}
+			}
+		} catch (JSONException e) {
+			Log.e(TAG, "Invalid items, not probing them.");
+		}
+	}
+
+	// Internal methods.
+	private static void probe(String url, Bundle options) {
+		// Pattern entries are probed again, a CDN may serve one pattern in more than one format.
+		if (resolveExplicit(url, options) != null || !url.toLowerCase().startsWith("http")) {
+			return;
+		}
+
+		NetworkStack.Config config = new NetworkStack.Config(PROBE_TIMEOUT_MS, PROBE_TIMEOUT_MS, NetworkStack.Config.fromOptions(options).headers);
+		Request.Builder request = new Request.Builder().url(url).head();
+		for (Map.Entry<String, String> header : config.headers.entrySet()) {
+			request.header(header.getKey(), header.getValue());
+		}
+
+		String mimeType;
+		try (Response response = NetworkStack.getClient(config).newCall(request.build()).execute()) {
+			mimeType = response.isSuccessful() ? fromContentType(response.header("Content-Type")) : null;
+		} catch (IOException | IllegalArgumentException e) {
+			Log.w(TAG, "Could not probe " + url + ": " + e);
+			return;
+		}
+		if (mimeType == null) {
+			return;
+		}
+
+		String key = getKey(url);
+		synchronized (ContentTypeResolver.class) {
+			cache.put(key, mimeType);
+			prefs.edit().putString(key, mimeType).apply();
+		}
+	}
+
+	/** Returns the type from the {@code mimeType} option or the URL itself, or null. */
+	@Nullable
+	private static String resolveExplicit(String url, @Nullable Bundle options) {
+		String mimeType = options != null ? options.getString("mimeType") : null;
+		if (mimeType != null || url == null) {
+			return mimeType;
+		}
+		return fromUrl(url);
+	}
+
+	@Nullable
+	static String fromUrl(String url) {
+		@C.ContentType int contentType = Util.inferContentType(Uri.parse(url));
+		if (contentType == C.CONTENT_TYPE_OTHER || contentType == C.CONTENT_TYPE_RTSP) {
+			// Covers playlists passed in a query parameter, e.g. ?src=live.m3u8.
+			return url.contains(".m3u8") ? MimeTypes.APPLICATION_M3U8 : null;
+		}
+		return Util.getAdaptiveMimeTypeForContentType(contentType);
+	}
+
+	@Nullable
+	private static String fromContentType(@Nullable String contentType) {
+		if (contentType == null) {
+			return null;
+		}
+
+		String mimeType = contentType.split(";")[0].trim().toLowerCase();
+		switch (mimeType) {
+			case "application/vnd.apple.mpegurl":
+			case "application/x-mpegurl":
+			case "audio/mpegurl":
+			case "audio/x-mpegurl":
+				return MimeTypes.APPLICATION_M3U8;
+			case "application/dash+xml":
+				return MimeTypes.APPLICATION_MPD;
+			case "application/vnd.ms-sstr+xml":
+				return MimeTypes.APPLICATION_SS;
+			default:
+				// Progressive media keeps its own type, anything else (e.g. an error page) is not cached.
+				return MimeTypes.isVideo(mimeType) || MimeTypes.isAudio(mimeType) ? mimeType : null;
+		}
+	}
+
+	static String getKey(String url) {
+		Uri uri = Uri.parse(url);
+		StringBuilder key = new StringBuilder(String.valueOf(uri.getHost()));
+		for (String segment : uri.getPathSegments()) {
+			int dot = segment.lastIndexOf('.');
+			String name = dot > 0 ? segment.substring(0, dot) : segment;
+			boolean isId = name.length() > MAX_LITERAL_SEGMENT_LENGTH || name.matches(".*\\d.*");
+			key.append('/').append(isId ? "*" + segment.substring(name.length()) : segment);
+		}
+		return key.toString();
+	}
+}
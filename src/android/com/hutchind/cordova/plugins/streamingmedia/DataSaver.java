@@ -0,0 +1,185 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.source.LoadEventInfo;
+import androidx.media3.exoplayer.source.MediaLoadData;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Applies the {@code dataSaver} play option to a local player: {@code "on"} always limits data use,
+ * {@code "auto"} only while the default network is metered, {@code "off"} never.
+ *
+ * <p>While active, video is capped to 480p and {@link #MAX_VIDEO_BITRATE}, and the forward buffer
+ * to that of the {@code dataSaver} buffer preset. The limits follow network changes mid-playback.
+ * Bytes loaded are counted separately for metered and unmetered networks. All methods must be
+ * called on the main thread.
+ */
+@UnstableApi
+class DataSaver implements AnalyticsListener {
+	public static final String MODE_AUTO = "auto";
+	public static final String MODE_ON = "on";
+	public static final String MODE_OFF = "off";
+
+	private static final int MAX_VIDEO_BITRATE = 800000;
+	private static final int MAX_VIDEO_WIDTH = 854;
+	private static final int MAX_VIDEO_HEIGHT = 480;
+
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private final ConnectivityManager connectivityManager;
+	private final ExoPlayer player;
+	private final String mode;
+	private final int maxVideoBitrate;
+	@Nullable private final ConnectivityManager.NetworkCallback networkCallback;
+
+	private boolean metered;
+	private boolean active;
+	private int activations;
+	private long meteredBytes;
+	private long unmeteredBytes;
+
+	private DataSaver(Context context, ExoPlayer player, String mode, Bundle options) {
+		this.connectivityManager = (ConnectivityManager) context.getApplicationContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+		this.player = player;
+		this.mode = mode;
+		this.maxVideoBitrate = options.getInt("maxVideoBitrate", Integer.MAX_VALUE);
+		this.metered = connectivityManager.isActiveNetworkMetered();
+
+		if (MODE_AUTO.equals(mode) && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+			networkCallback = new ConnectivityManager.NetworkCallback() {
+				@Override
+				public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+					boolean isMetered = !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+					handler.post(() -> onMeteredChanged(isMetered));
+				}
+			};
+			connectivityManager.registerDefaultNetworkCallback(networkCallback);
+		} else {
+			networkCallback = null;
+		}
+	}
+
+	/**
+	 * Reads the {@code dataSaver} option.
+	 *
+	 * @throws IllegalArgumentException If the mode is unknown.
+	 */
+	public static String getMode(@Nullable Bundle options) {
+		String mode = options != null ? options.getString("dataSaver", MODE_OFF) : MODE_OFF;
+		if (!MODE_AUTO.equals(mode) && !MODE_ON.equals(mode) && !MODE_OFF.equals(mode)) {
+			throw new IllegalArgumentException("Unknown dataSaver mode: " + mode);
+		}
+		return mode;
+	}
+
+	/**
+	 * Starts applying the {@code dataSaver} option to {@code player}.
+	 *
+	 * @return The data saver, to be {@link #release() released} with the session, or null if the
+	 *     option is off.
+	 */
+	@Nullable
+	public static DataSaver attach(Context context, ExoPlayer player, @Nullable Bundle options) {
+		String mode = getMode(options);
+		if (MODE_OFF.equals(mode)) {
+			return null;
+		}
+
+		DataSaver dataSaver = new DataSaver(context, player, mode, options);
+		player.addAnalyticsListener(dataSaver);
+		dataSaver.update();
+		return dataSaver;
+	}
+
+	/** Stops following the network and lifts the limits. */
+	public void release() {
+		if (networkCallback != null) {
+			connectivityManager.unregisterNetworkCallback(networkCallback);
+		}
+		handler.removeCallbacksAndMessages(null);
+		player.removeAnalyticsListener(this);
+		if (active) {
+			setActive(false);
+		}
+	}
+
+	/** Returns the mode, whether the limits are applied now and the bytes loaded per network kind. */
+	public JSONObject toJson() {
+		JSONObject json = new JSONObject();
+		try {
+			json.put("mode", mode);
+			json.put("active", active);
+			json.put("activations", activations);
+			json.put("meteredBytes", meteredBytes);
+			json.put("unmeteredBytes", unmeteredBytes);
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+		return json;
+	}
+
+	// AnalyticsListener implementation.
+	@Override
+	public void onLoadCompleted(EventTime eventTime, LoadEventInfo loadEventInfo, MediaLoadData mediaLoadData) {
+		if (metered) {
+			meteredBytes += loadEventInfo.bytesLoaded;
+		} else {
+			unmeteredBytes += loadEventInfo.bytesLoaded;
+		}
+	}
+
+	// Internal methods.
+	private void onMeteredChanged(boolean isMetered) {
+		metered = isMetered;
+		update();
+	}
+
+	private void update() {
+		boolean shouldBeActive = MODE_ON.equals(mode) || metered;
+		if (shouldBeActive != active) {
+			setActive(shouldBeActive);
+		}
+	}
+
+	private void setActive(boolean active) {
+		this.active = active;
+		if (active) {
+			activations++;
+		}
+
+		applyVideoLimits();
+
+		StreamingLoadControl loadControl = PlayerPool.getLoadControl(player);
+		if (loadControl != null) {
+			loadControl.setBufferCapMs(active ? BufferPolicy.DATA_SAVER.maxBufferMs : C.TIME_UNSET);
+		}
+	}
+
+	/** Applies the video limits of the data saver, combined with those of {@link MemoryPressure}. */
+	void applyVideoLimits() {
+		int maxBitrate = maxVideoBitrate;
+		int maxWidth = MemoryPressure.getMaxVideoWidth();
+		int maxHeight = MemoryPressure.getMaxVideoHeight();
+		if (active) {
+			maxBitrate = Math.min(maxBitrate, MAX_VIDEO_BITRATE);
+			maxWidth = Math.min(maxWidth, MAX_VIDEO_WIDTH);
+			maxHeight = Math.min(maxHeight, MAX_VIDEO_HEIGHT);
+		}
+		player.setTrackSelectionParameters(player.getTrackSelectionParameters().buildUpon()
+				.setMaxVideoBitrate(maxBitrate)
+				.setMaxVideoSize(maxWidth, maxHeight)
+				.build());
+	}
+}
@@ -0,0 +1,440 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.NoOpCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+import androidx.media3.exoplayer.DefaultRenderersFactory;
+import androidx.media3.exoplayer.offline.DefaultDownloadIndex;
+import androidx.media3.exoplayer.offline.DefaultDownloaderFactory;
+import androidx.media3.exoplayer.offline.Download;
+import androidx.media3.exoplayer.offline.DownloadCursor;
+import androidx.media3.exoplayer.offline.DownloadHelper;
+import androidx.media3.exoplayer.offline.DownloadManager;
+import androidx.media3.exoplayer.offline.DownloadRequest;
+import androidx.media3.exoplayer.offline.DownloadService;
+import androidx.media3.exoplayer.offline.Downloader;
+import androidx.media3.exoplayer.scheduler.Requirements;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Owns the {@link DownloadManager} and the download cache used for offline playback, and relays
+ * download progress to the callbacks registered through {@code downloadMedia}.
+ *
+ * <p>Downloads are keyed by their URL. Each keeps the {@code headers} and timeouts it was requested
+ * with, so it resumes with them after a restart. The storage limit is shared by all downloads and
+ * persisted. Completed downloads are also kept in memory once {@link #load} has run, so players
+ * look them up without touching the download index. Except for {@link #load}, all methods must be
+ * called on the main thread.
+ */
+@UnstableApi
+class DownloadTracker implements DownloadManager.Listener {
+	private static final String TAG = "DownloadTracker";
+	private static final String DOWNLOAD_DIR = "streaming-media-downloads";
+	private static final int PARALLEL_SEGMENT_DOWNLOADS = 4;
+	private static final int MAX_PARALLEL_DOWNLOADS = 2;
+	private static final int PROGRESS_INTERVAL_MS = 1000;
+	private static final int STOP_REASON_STORAGE_LIMIT = 1;
+	private static final String PREFS_NAME = "streaming_media_downloads";
+	private static final String KEY_STORAGE_LIMIT_BYTES = "storageLimitBytes";
+
+	private static DownloadTracker instance;
+	private static final Map<String, MediaItem> completed = new ConcurrentHashMap<>();
+	private static volatile boolean isLoaded;
+	private static volatile boolean hasDownloadDir;
+
+	private final Context context;
+	private final SimpleCache downloadCache;
+	private final DownloadManager downloadManager;
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private final Map<String, CallbackContext> progressCallbacks = new HashMap<>();
+	private final Runnable progressReporter = this::reportProgress;
+	private final Executor downloadExecutor = Executors.newFixedThreadPool(PARALLEL_SEGMENT_DOWNLOADS);
+
+	private DownloadTracker(Context context) {
+		this.context = context;
+		hasDownloadDir = true;
+		downloadCache = new SimpleCache(getDownloadDir(context), new NoOpCacheEvictor(), MediaCache.getDatabaseProvider(context));
+		downloadManager = new DownloadManager(
+				context,
+				new DefaultDownloadIndex(MediaCache.getDatabaseProvider(context)),
+				this::createDownloader);
+		downloadManager.setMaxParallelDownloads(MAX_PARALLEL_DOWNLOADS);
+		downloadManager.setRequirements(new Requirements(Requirements.NETWORK | Requirements.DEVICE_STORAGE_NOT_LOW));
+		downloadManager.addListener(this);
+	}
+
+	public static synchronized DownloadTracker getInstance(Context context) {
+		if (instance == null) {
+			instance = new DownloadTracker(context.getApplicationContext());
+		}
+		return instance;
+	}
+
+	/**
+	 * Loads the completed downloads into memory, once. Reads storage, so call it off the main
+	 * thread before a play looks up its downloaded copy.
+	 */
+	public static void load(Context context) {
+		// Not locking the class, so getInstance() on the main thread does not wait for the read.
+		synchronized (completed) {
+			if (isLoaded) {
+				return;
+			}
+
+			if (getDownloadDir(context).exists()) {
+				hasDownloadDir = true;
+				DefaultDownloadIndex index = new DefaultDownloadIndex(MediaCache.getDatabaseProvider(context));
+				try (DownloadCursor cursor = index.getDownloads(Download.STATE_COMPLETED)) {
+					while (cursor.moveToNext()) {
+						Download download = cursor.getDownload();
+						completed.put(download.request.id, download.request.toMediaItem());
+					}
+				} catch (IOException e) {
+					Log.e(TAG, "Could not read download index: " + e);
+				}
+			}
+			isLoaded = true;
+		}
+	}
+
+	/**
+	 * Whether anything was ever downloaded, without opening the download cache. False until
+	 * {@link #load} has run, unless a download was started in this process.
+	 */
+	public static boolean hasDownloads(Context context) {
+		return hasDownloadDir;
+	}
+
+	public DownloadManager getDownloadManager() {
+		return downloadManager;
+	}
+
+	/**
+	 * Wraps {@code upstreamFactory} so that downloaded media is read from local storage. The
+	 * download cache is only read, never written, by playback.
+	 */
+	public static DataSource.Factory wrapDataSourceFactory(Context context, DataSource.Factory upstreamFactory) {
+		if (!hasDownloads(context)) {
+			return upstreamFactory;
+		}
+
+		return new CacheDataSource.Factory()
+				.setCache(getInstance(context).downloadCache)
+				.setUpstreamDataSourceFactory(upstreamFactory)
+				.setCacheWriteDataSinkFactory(null);
+	}
+
+	/** Returns the media item of a completed download of {@code url}, or null if there is none or {@link #load} has not run. */
+	@Nullable
+	public static MediaItem getDownloadedMediaItem(Context context, String url) {
+		return url != null ? completed.get(url) : null;
+	}
+
+	/**
+	 * Resolves the tracks to fetch for {@code url} and queues the download.
+	 *
+	 * @param url The media URL, also the id of the download.
+	 * @param options The download options: {@code title}, stored with the download and returned by
+	 *     {@link #listDownloads()}, {@code storageLimitMb}, the total size allowed for all downloads
+	 *     (0 for no limit, kept until changed), and the {@code mimeType}, {@code headers} and timeout
+	 *     options of {@code playVideo}.
+	 * @param callbackContext Receives progress updates until the download completes or fails.
+	 */
+	public void download(String url, Bundle options, CallbackContext callbackContext) {
+		if (options.containsKey("storageLimitMb")) {
+			getPrefs(context).edit()
+					.putLong(KEY_STORAGE_LIMIT_BYTES, Math.max(0, options.getInt("storageLimitMb")) * 1024L * 1024L)
+					.apply();
+			resumeStoppedDownloads();
+		}
+		long storageLimitBytes = getStorageLimitBytes();
+		if (storageLimitBytes > 0 && downloadCache.getCacheSpace() >= storageLimitBytes) {
+			callbackContext.error("Download storage limit reached.");
+			return;
+		}
+
+		String title = options.getString("title", url);
+		byte[] data;
+		try {
+			data = Util.getUtf8Bytes(buildRequestData(title, options).toString());
+		} catch (JSONException e) {
+			callbackContext.error(e.getMessage());
+			return;
+		}
+		DownloadHelper helper = DownloadHelper.forMediaItem(context, PlayerManager.buildMediaItem(url, options), new DefaultRenderersFactory(context),
+				NetworkStack.buildDataSourceFactory(context, NetworkStack.Config.fromOptions(options)));
+		helper.prepare(new DownloadHelper.Callback() {
+			@Override
+			public void onPrepared(DownloadHelper helper) {
+				DownloadRequest request = helper.getDownloadRequest(url, data);
+				helper.release();
+
+				progressCallbacks.put(url, callbackContext);
+				DownloadService.sendAddDownload(context, StreamingDownloadService.class, request, false);
+				scheduleProgress();
+			}
+
+			@Override
+			public void onPrepareError(DownloadHelper helper, IOException e) {
+				helper.release();
+				callbackContext.error("Could not prepare download: " + e.getMessage());
+			}
+		});
+	}
+
+	/** Removes the download of {@code url} and its data. */
+	public void remove(String url) {
+		CallbackContext callback = progressCallbacks.remove(url);
+		if (callback != null) {
+			callback.error("Download removed.");
+		}
+		DownloadService.sendRemoveDownload(context, StreamingDownloadService.class, url, false);
+	}
+
+	/** Returns every known download with its state and progress. */
+	public JSONArray listDownloads() throws JSONException {
+		JSONArray downloads = new JSONArray();
+		try (DownloadCursor cursor = downloadManager.getDownloadIndex().getDownloads()) {
+			while (cursor.moveToNext()) {
+				downloads.put(toJson(cursor.getDownload()));
+			}
+		} catch (IOException e) {
+			Log.e(TAG, "Could not read download index: " + e);
+		}
+		return downloads;
+	}
+
+	// DownloadManager.Listener implementation.
+	@Override
+	public void onInitialized(DownloadManager downloadManager) {
+		resumeStoppedDownloads();
+	}
+
+	@Override
+	public void onDownloadChanged(DownloadManager downloadManager, Download download, @Nullable Exception finalException) {
+		String url = download.request.id;
+		if (download.state == Download.STATE_COMPLETED) {
+			completed.put(url, download.request.toMediaItem());
+		} else {
+			completed.remove(url);
+		}
+		if (download.state == Download.STATE_DOWNLOADING) {
+			// Keeps the storage limit enforced for downloads resumed without a callback.
+			scheduleProgress();
+		}
+
+		CallbackContext callback = progressCallbacks.get(url);
+		if (callback == null) {
+			return;
+		}
+
+		try {
+			if (download.state == Download.STATE_COMPLETED) {
+				progressCallbacks.remove(url);
+				callback.success(toJson(download));
+			} else if (download.state == Download.STATE_FAILED) {
+				progressCallbacks.remove(url);
+				callback.error(finalException != null ? finalException.getMessage() : "Download failed.");
+			} else {
+				sendProgress(callback, toJson(download));
+			}
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void onDownloadRemoved(DownloadManager downloadManager, Download download) {
+		completed.remove(download.request.id);
+		progressCallbacks.remove(download.request.id);
+		resumeStoppedDownloads();
+	}
+
+	// Internal methods.
+	private Downloader createDownloader(DownloadRequest request) {
+		CacheDataSource.Factory dataSourceFactory = new CacheDataSource.Factory()
+				.setCache(downloadCache)
+				.setUpstreamDataSourceFactory(NetworkStack.buildDataSourceFactory(context, getNetworkConfig(request)));
+		return new DefaultDownloaderFactory(dataSourceFactory, downloadExecutor).createDownloader(request);
+	}
+
+	/** Lifts the storage limit stop of every download once the downloads fit under the limit again. */
+	private void resumeStoppedDownloads() {
+		long storageLimitBytes = getStorageLimitBytes();
+		if (storageLimitBytes > 0 && downloadCache.getCacheSpace() >= storageLimitBytes) {
+			return;
+		}
+
+		for (Download download : downloadManager.getCurrentDownloads()) {
+			if (download.state == Download.STATE_STOPPED && download.stopReason == STOP_REASON_STORAGE_LIMIT) {
+				Log.v(TAG, "Below the storage limit, resuming " + download.request.id);
+				DownloadService.sendSetStopReason(context, StreamingDownloadService.class, download.request.id, Download.STOP_REASON_NONE, false);
+			}
+		}
+	}
+
+	private void scheduleProgress() {
+		handler.removeCallbacks(progressReporter);
+		handler.postDelayed(progressReporter, PROGRESS_INTERVAL_MS);
+	}
+
+	private void reportProgress() {
+		long storageLimitBytes = getStorageLimitBytes();
+		long usedBytes = downloadCache.getCacheSpace();
+		boolean isDownloading = false;
+		for (Download download : downloadManager.getCurrentDownloads()) {
+			if (download.state != Download.STATE_DOWNLOADING) {
+				continue;
+			}
+
+			// The limit can only be checked while data arrives; stop what would overrun it.
+			if (storageLimitBytes > 0 && usedBytes > storageLimitBytes) {
+				Log.w(TAG, "Storage limit reached, stopping " + download.request.id);
+				DownloadService.sendSetStopReason(context, StreamingDownloadService.class, download.request.id, STOP_REASON_STORAGE_LIMIT, false);
+				CallbackContext callback = progressCallbacks.remove(download.request.id);
+				if (callback != null) {
+					callback.error("Download storage limit reached.");
+				}
+				continue;
+			}
+
+			isDownloading = true;
+			CallbackContext callback = progressCallbacks.get(download.request.id);
+			if (callback != null) {
+				try {
+					sendProgress(callback, toJson(download));
+				} catch (JSONException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		if (isDownloading || !progressCallbacks.isEmpty()) {
+			scheduleProgress();
+		}
+	}
+
+	private long getStorageLimitBytes() {
+		return getPrefs(context).getLong(KEY_STORAGE_LIMIT_BYTES, 0);
+	}
+
+	/** Keeps the title and the network options of a download in its request, to resume it with them. */
+	private static JSONObject buildRequestData(String title, Bundle options) throws JSONException {
+		JSONObject data = new JSONObject();
+		data.put("title", title);
+		if (options.containsKey("headers")) {
+			data.put("headers", options.getString("headers"));
+		}
+		if (options.containsKey("connectTimeoutMs")) {
+			data.put("connectTimeoutMs", options.getInt("connectTimeoutMs"));
+		}
+		if (options.containsKey("readTimeoutMs")) {
+			data.put("readTimeoutMs", options.getInt("readTimeoutMs"));
+		}
+		return data;
+	}
+
+	/** Returns the request data written by {@link #buildRequestData}, or just a title for downloads queued before it. */
+	private static JSONObject parseRequestData(DownloadRequest request) {
+		String data = Util.fromUtf8Bytes(request.data);
+		try {
+			JSONObject json = new JSONObject(data);
+			if (json.has("title")) {
+				return json;
+			}
+		} catch (JSONException e) {
+			// A plain title.
+		}
+
+		JSONObject json = new JSONObject();
+		try {
+			json.put("title", data);
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+		return json;
+	}
+
+	private static NetworkStack.Config getNetworkConfig(DownloadRequest request) {
+		JSONObject data = parseRequestData(request);
+		Bundle options = new Bundle();
+		if (data.has("headers")) {
+			options.putString("headers", data.optString("headers"));
+		}
+		if (data.has("connectTimeoutMs")) {
+			options.putInt("connectTimeoutMs", data.optInt("connectTimeoutMs"));
+		}
+		if (data.has("readTimeoutMs")) {
+			options.putInt("readTimeoutMs", data.optInt("readTimeoutMs"));
+		}
+		return NetworkStack.Config.fromOptions(options);
+	}
+
+	private static void sendProgress(CallbackContext callback, JSONObject progress) {
+		PluginResult result = new PluginResult(PluginResult.Status.OK, progress);
+		result.setKeepCallback(true);
+		callback.sendPluginResult(result);
+	}
+
+	private static JSONObject toJson(Download download) throws JSONException {
+		JSONObject json = new JSONObject();
+		json.put("url", download.request.id);
+		json.put("title", parseRequestData(download.request).optString("title"));
+		json.put("state", getStateName(download.state));
+		json.put("percentDownloaded", download.getPercentDownloaded());
+		json.put("bytesDownloaded", download.getBytesDownloaded());
+		json.put("contentLength", download.contentLength);
+		return json;
+	}
+
+	private static String getStateName(@Download.State int state) {
+		switch (state) {
+			case Download.STATE_QUEUED:
+				return "queued";
+			case Download.STATE_STOPPED:
+				return "stopped";
+			case Download.STATE_DOWNLOADING:
+				return "downloading";
+			case Download.STATE_COMPLETED:
+				return "completed";
+			case Download.STATE_FAILED:
+				return "failed";
+			case Download.STATE_REMOVING:
+				return "removing";
+			case Download.STATE_RESTARTING:
+				return "restarting";
+			default:
+				return "unknown";
+		}
+	}
+
+	private static SharedPreferences getPrefs(Context context) {
+		return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+	}
+
+	private static File getDownloadDir(Context context) {
+		return new File(context.getFilesDir(), DOWNLOAD_DIR);
+	}
+}
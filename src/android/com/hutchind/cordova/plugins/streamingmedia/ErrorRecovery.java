@@ -0,0 +1,261 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.os.Bundle;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.exoplayer.ExoPlayer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Keeps a session going when loads fail for good: once {@link RetryPolicy} has given up, the
+ * current item fails over to its next {@code fallbackUrls} entry, e.g. another CDN, at the same
+ * position. Decoder errors are not failed over, as another copy of the media would not help.
+ *
+ * <p>Every player error is classified as {@code "network"}, {@code "source"}, {@code "decoder"}
+ * or {@code "other"} and counted. A failed-over item keeps its original URL as media id, so resume
+ * positions stay keyed by it. Its type is carried over, unless the media could not be parsed with
+ * it, in which case the fallback's own type is resolved. All methods must be called on the main
+ * thread.
+ */
+@UnstableApi
+class ErrorRecovery implements Player.Listener {
+	public static final String CATEGORY_NETWORK = "network";
+	public static final String CATEGORY_SOURCE = "source";
+	public static final String CATEGORY_DECODER = "decoder";
+	public static final String CATEGORY_OTHER = "other";
+
+	/** Receives the outcome of each player error. */
+	public interface Listener {
+		/**
+		 * Called once the error was handled.
+		 *
+		 * @param error The player error.
+		 * @param category The {@link #classify(PlaybackException) category} of the error.
+		 * @param failedOver Whether the player failed over and keeps playing.
+		 */
+		void onPlayerError(PlaybackException error, String category, boolean failedOver);
+	}
+
+	private static final String TAG = "ErrorRecovery";
+
+	private final ExoPlayer player;
+	@Nullable private final Listener listener;
+	private final Map<String, Integer> errorCounts = new HashMap<>();
+	private final Map<String, Integer> nextFallbacks = new HashMap<>();
+
+	private Bundle options;
+	private Map<String, List<String>> fallbackUrls = new HashMap<>();
+	private int failovers;
+	@Nullable private JSONObject lastError;
+
+	private ErrorRecovery(ExoPlayer player, @Nullable Listener listener) {
+		this.player = player;
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts recovering {@code player} from load errors, to be {@link #release() released} with the
+	 * session.
+	 *
+	 * @param player The local player of a session.
+	 * @param options The play options, for {@code fallbackUrls}.
+	 * @param listener The listener to notify of errors, or null.
+	 */
+	public static ErrorRecovery attach(ExoPlayer player, @Nullable Bundle options, @Nullable Listener listener) {
+		ErrorRecovery errorRecovery = new ErrorRecovery(player, listener);
+		errorRecovery.setOptions(options);
+		player.addListener(errorRecovery);
+		return errorRecovery;
+	}
+
+	/**
+	 * Reads the {@code fallbackUrls} of {@code mediaUrl} and of each object in {@code items}, each
+	 * an array of URLs of the same media.
+	 */
+	public void setOptions(@Nullable Bundle options) {
+		this.options = options;
+		fallbackUrls = new HashMap<>();
+		nextFallbacks.clear();
+		if (options == null) {
+			return;
+		}
+
+		String url = options.getString("mediaUrl");
+		String json = options.getString("fallbackUrls");
+		try {
+			if (url != null && json != null) {
+				putFallbackUrls(url, new JSONArray(json));
+			}
+
+			String items = options.getString("items");
+			JSONArray queue = items != null ? new JSONArray(items) : new JSONArray();
+			for (int i = 0; i < queue.length(); i++) {
+				JSONObject item = queue.optJSONObject(i);
+				if (item != null && item.has("url")) {
+					putFallbackUrls(item.getString("url"), item.optJSONArray("fallbackUrls"));
+				}
+			}
+		} catch (JSONException e) {
+			Log.e(TAG, "Invalid fallbackUrls option, not failing over.");
+		}
+	}
+
+	/** Stops recovering the player. */
+	public void release() {
+		player.removeListener(this);
+	}
+
+	/** Returns the error counts per category, the number of failovers and the last error. */
+	public JSONObject toJson() {
+		JSONObject json = new JSONObject();
+		try {
+			json.put(CATEGORY_NETWORK, getErrorCount(CATEGORY_NETWORK));
+			json.put(CATEGORY_SOURCE, getErrorCount(CATEGORY_SOURCE));
+			json.put(CATEGORY_DECODER, getErrorCount(CATEGORY_DECODER));
+			json.put(CATEGORY_OTHER, getErrorCount(CATEGORY_OTHER));
+			json.put("failovers", failovers);
+			if (lastError != null) {
+				json.put("last", lastError);
+			}
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+		return json;
+	}
+
+	/** Returns whether {@code error} came from the network, the media itself, or decoding it. */
+	public static String classify(PlaybackException error) {
+		int code = error.errorCode;
+		switch (code) {
+			case PlaybackException.ERROR_CODE_IO_BAD_HTTP_STATUS:
+				// Server errors, timeouts and throttling are the edge node failing, the rest is the URL.
+				Throwable cause = error.getCause();
+				if (cause instanceof HttpDataSource.InvalidResponseCodeException) {
+					int status = ((HttpDataSource.InvalidResponseCodeException) cause).responseCode;
+					return status >= 500 || status == 408 || status == 429 ? CATEGORY_NETWORK : CATEGORY_SOURCE;
+				}
+				return CATEGORY_NETWORK;
+			case PlaybackException.ERROR_CODE_IO_FILE_NOT_FOUND:
+			case PlaybackException.ERROR_CODE_IO_NO_PERMISSION:
+			case PlaybackException.ERROR_CODE_IO_CLEARTEXT_NOT_PERMITTED:
+			case PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE:
+			case PlaybackException.ERROR_CODE_BEHIND_LIVE_WINDOW:
+				return CATEGORY_SOURCE;
+			default:
+				break;
+		}
+
+		if (code >= PlaybackException.ERROR_CODE_IO_UNSPECIFIED && code < PlaybackException.ERROR_CODE_PARSING_CONTAINER_MALFORMED) {
+			return CATEGORY_NETWORK;
+		} else if (code >= PlaybackException.ERROR_CODE_PARSING_CONTAINER_MALFORMED && code < PlaybackException.ERROR_CODE_DECODER_INIT_FAILED) {
+			return CATEGORY_SOURCE;
+		} else if (code >= PlaybackException.ERROR_CODE_DECODER_INIT_FAILED && code < PlaybackException.ERROR_CODE_DRM_UNSPECIFIED) {
+			// Decoding and audio output.
+			return CATEGORY_DECODER;
+		} else if (code >= PlaybackException.ERROR_CODE_DRM_UNSPECIFIED && code < PlaybackException.ERROR_CODE_VIDEO_FRAME_PROCESSOR_INIT_FAILED) {
+			return CATEGORY_SOURCE;
+		} else if (code >= PlaybackException.ERROR_CODE_VIDEO_FRAME_PROCESSOR_INIT_FAILED && code < PlaybackException.CUSTOM_ERROR_CODE_BASE) {
+			return CATEGORY_DECODER;
+		}
+		return CATEGORY_OTHER;
+	}
+
+	// Player.Listener implementation.
+	@Override
+	public void onPlayerError(PlaybackException error) {
+		String category = classify(error);
+		errorCounts.put(category, getErrorCount(category) + 1);
+
+		MediaItem mediaItem = player.getCurrentMediaItem();
+		String url = mediaItem != null ? getOriginalUrl(mediaItem) : null;
+		lastError = new JSONObject();
+		try {
+			lastError.put("category", category);
+			lastError.put("code", error.errorCode);
+			lastError.put("codeName", error.getErrorCodeName());
+			lastError.put("message", error.getMessage());
+			lastError.put("url", url);
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+
+		boolean failedOver = url != null && !CATEGORY_DECODER.equals(category) && maybeFailOver(mediaItem, url, error);
+		if (listener != null) {
+			listener.onPlayerError(error, category, failedOver);
+		}
+	}
+
+	// Internal methods.
+	private void putFallbackUrls(String url, @Nullable JSONArray urls) throws JSONException {
+		if (urls == null || urls.length() == 0) {
+			return;
+		}
+
+		List<String> list = new ArrayList<>();
+		for (int i = 0; i < urls.length(); i++) {
+			list.add(urls.getString(i));
+		}
+		fallbackUrls.put(url, list);
+	}
+
+	/** Replaces the current item with its next fallback, returning whether there was one. */
+	private boolean maybeFailOver(MediaItem mediaItem, String url, PlaybackException error) {
+		List<String> fallbacks = fallbackUrls.get(url);
+		Integer next = nextFallbacks.get(url);
+		int index = next != null ? next : 0;
+		if (fallbacks == null || index >= fallbacks.size() || mediaItem.localConfiguration == null) {
+			return false;
+		}
+
+		String fallbackUrl = fallbacks.get(index);
+		nextFallbacks.put(url, index + 1);
+		failovers++;
+		Log.w(TAG, "Failing over to " + fallbackUrl + " after " + error.getErrorCodeName());
+
+		// A type the media could not be parsed with would fail the fallback the same way.
+		boolean isParsingError = error.errorCode >= PlaybackException.ERROR_CODE_PARSING_CONTAINER_MALFORMED
+				&& error.errorCode <= PlaybackException.ERROR_CODE_PARSING_MANIFEST_UNSUPPORTED;
+		String mimeType = isParsingError ? null : mediaItem.localConfiguration.mimeType;
+		MediaItem fallback = mediaItem.buildUpon()
+				.setUri(fallbackUrl)
+				.setMediaId(url)
+				.setMimeType(mimeType != null ? mimeType : ContentTypeResolver.resolve(fallbackUrl, options))
+				.build();
+		int mediaItemIndex = player.getCurrentMediaItemIndex();
+		boolean isLive = player.isCurrentMediaItemLive();
+		long positionMs = player.getCurrentPosition();
+
+		player.replaceMediaItem(mediaItemIndex, fallback);
+		if (isLive) {
+			player.seekToDefaultPosition(mediaItemIndex);
+		} else {
+			player.seekTo(mediaItemIndex, positionMs);
+		}
+		player.prepare();
+		return true;
+	}
+
+	/** Returns the URL the item was requested with, before any failover. */
+	private String getOriginalUrl(MediaItem mediaItem) {
+		if (fallbackUrls.containsKey(mediaItem.mediaId)) {
+			return mediaItem.mediaId;
+		}
+		return mediaItem.localConfiguration != null ? mediaItem.localConfiguration.uri.toString() : null;
+	}
+
+	private int getErrorCount(String category) {
+		Integer count = errorCounts.get(category);
+		return count != null ? count : 0;
+	}
+}
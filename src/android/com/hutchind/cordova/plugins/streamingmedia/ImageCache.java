@@ -0,0 +1,140 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Two level cache for artwork: decoded bitmaps in memory, sized to a fraction of the heap, and the
+ * original downloads on disk, evicted least recently used first.
+ */
+class ImageCache {
+	private static final String TAG = "ImageCache";
+	private static final String CACHE_DIR = "streaming-media-images";
+	private static final long MAX_DISK_BYTES = 20L * 1024 * 1024;
+	private static final int HEAP_FRACTION = 8;
+
+	private static ImageCache instance;
+
+	private final LruCache<String, Bitmap> memoryCache;
+	private final File diskDir;
+
+	private ImageCache(Context context) {
+		int maxKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / HEAP_FRACTION);
+		memoryCache = new LruCache<String, Bitmap>(maxKb) {
+			@Override
+			protected int sizeOf(String key, Bitmap bitmap) {
+				return bitmap.getByteCount() / 1024;
+			}
+		};
+		diskDir = new File(context.getCacheDir(), CACHE_DIR);
+		if (!diskDir.exists() && !diskDir.mkdirs()) {
+			Log.w(TAG, "Could not create " + diskDir);
+		}
+	}
+
+	public static synchronized ImageCache getInstance(Context context) {
+		if (instance == null) {
+			instance = new ImageCache(context.getApplicationContext());
+		}
+		return instance;
+	}
+
+	/** Key for a bitmap decoded from {@code uri} for a target of the given size. */
+	public static String memoryKey(String uri, int width, int height) {
+		return uri + "@" + width + "x" + height;
+	}
+
+	public Bitmap getBitmap(String key) {
+		return memoryCache.get(key);
+	}
+
+	public void putBitmap(String key, Bitmap bitmap) {
+		memoryCache.put(key, bitmap);
+	}
+
+	/** Drops every decoded bitmap. The disk cache is kept. */
+	public void evictMemory() {
+		memoryCache.evictAll();
+	}
+
+	/** Returns the cached download for {@code uri}, or null. A hit refreshes its eviction order. */
+	public File getFile(String uri) {
+		File file = fileFor(uri);
+		if (!file.exists()) {
+			return null;
+		}
+		file.setLastModified(System.currentTimeMillis());
+		return file;
+	}
+
+	/** Stores {@code input} as the cached download for {@code uri} and trims the cache. */
+	public synchronized File putFile(String uri, InputStream input) throws IOException {
+		File file = fileFor(uri);
+		File tmp = new File(diskDir, file.getName() + ".tmp");
+		try (OutputStream output = new FileOutputStream(tmp)) {
+			byte[] buffer = new byte[16 * 1024];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				output.write(buffer, 0, read);
+			}
+		}
+		if (!tmp.renameTo(file)) {
+			tmp.delete();
+			throw new IOException("Could not move " + tmp + " into the cache");
+		}
+		trimDisk();
+		return file;
+	}
+
+	private void trimDisk() {
+		File[] files = diskDir.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		long total = 0;
+		for (File file : files) {
+			total += file.length();
+		}
+		if (total <= MAX_DISK_BYTES) {
+			return;
+		}
+
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (File file : files) {
+			if (total <= MAX_DISK_BYTES) {
+				break;
+			}
+			total -= file.length();
+			file.delete();
+		}
+	}
+
+	private File fileFor(String uri) {
+		return new File(diskDir, hash(uri));
+	}
+
+	private static String hash(String value) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes());
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			return String.valueOf(value.hashCode());
+		}
+	}
+}
@@ -2,55 +2,161 @@ package com.hutchind.cordova.plugins.streamingmedia;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.util.Log;
 import android.widget.ImageView;
 import android.content.Context;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Response;
+
+/**
+ * Loads a background image into an {@link ImageView}, decoded no larger than the view needs.
+ * Results go through {@link ImageCache}; call {@link #cancel()} when the view goes away.
+ */
+public class ImageLoadTask implements Runnable {
+	private static final String TAG = "ImageLoadTask";
+
+	private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+			2, 2, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(8), new ThreadPoolExecutor.DiscardOldestPolicy());
+
+	static {
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
-public class ImageLoadTask extends AsyncTask<Void, Void, Bitmap> {
 	private String uri;
 	private ImageView imageView;
 	private Context context;
+	private NetworkStack.Config network;
+	private int reqWidth;
+	private int reqHeight;
+	private volatile boolean cancelled;
+	private Future<?> future;
 
 	public ImageLoadTask(String uri, ImageView imageView, Context context) {
+		this(uri, imageView, context, NetworkStack.Config.DEFAULT);
+	}
+
+	/** Loads with the {@code headers} and timeouts of a play, e.g. for token-protected artwork. */
+	ImageLoadTask(String uri, ImageView imageView, Context context, NetworkStack.Config network) {
 		this.uri = uri;
 		this.imageView = imageView;
 		this.context = context;
+		this.network = network;
+	}
+
+	/** Starts loading. Must be called on the main thread. */
+	public void start() {
+		DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+		reqWidth = imageView.getWidth() > 0 ? imageView.getWidth() : metrics.widthPixels;
+		reqHeight = imageView.getHeight() > 0 ? imageView.getHeight() : metrics.heightPixels;
+
+		Bitmap cached = ImageCache.getInstance(context).getBitmap(ImageCache.memoryKey(uri, reqWidth, reqHeight));
+		if (cached != null) {
+			imageView.setImageBitmap(cached);
+			return;
+		}
+
+		future = executor.submit(this);
+	}
+
+	/** Stops the load and drops the result. Must be called on the main thread. */
+	public void cancel() {
+		cancelled = true;
+		if (future != null) {
+			future.cancel(true);
+		}
+		mainHandler.removeCallbacksAndMessages(null);
+		imageView = null;
 	}
 
 	@Override
-	protected Bitmap doInBackground(Void... params) {
+	public void run() {
 		Bitmap bitmap = null;
+		try {
+			bitmap = load();
+		} catch (Exception e) {
+			Log.e(TAG, "Could not load " + uri + ": " + e);
+		}
+
+		if (bitmap == null || cancelled) {
+			return;
+		}
+
+		ImageCache.getInstance(context).putBitmap(ImageCache.memoryKey(uri, reqWidth, reqHeight), bitmap);
+		final Bitmap result = bitmap;
+		mainHandler.post(() -> {
+			if (!cancelled && imageView != null) {
+				imageView.setImageBitmap(result);
+			}
+		});
+	}
+
+	private Bitmap load() throws IOException {
 		if (uri != null && uri.toLowerCase().startsWith("http")) {
-			// Load image from URL
-			try {
-				URL urlConnection = new URL(uri);
-				HttpURLConnection connection = (HttpURLConnection) urlConnection.openConnection();
-				connection.setDoInput(true);
-				connection.connect();
-				InputStream input = connection.getInputStream();
-				bitmap = BitmapFactory.decodeStream(input);
-			} catch (Exception e) {
-				e.printStackTrace();
+			// Load image from URL, through the disk cache
+			ImageCache cache = ImageCache.getInstance(context);
+			File file = cache.getFile(uri);
+			if (file == null) {
+				file = download(cache);
 			}
+			return file != null ? decodeFile(file) : null;
 		} else {
 			// Load image from assets
-			InputStream istr;
-			try {
-				istr = context.getAssets().open(uri);
-				bitmap = BitmapFactory.decodeStream(istr);
-			} catch (Exception e) {
-				e.printStackTrace();
+			BitmapFactory.Options options = new BitmapFactory.Options();
+			options.inJustDecodeBounds = true;
+			try (InputStream istr = context.getAssets().open(uri)) {
+				BitmapFactory.decodeStream(istr, null, options);
+			}
+			options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
+			options.inJustDecodeBounds = false;
+			try (InputStream istr = context.getAssets().open(uri)) {
+				return BitmapFactory.decodeStream(istr, null, options);
 			}
 		}
-		return bitmap;
 	}
 
-	@Override
-	protected void onPostExecute(Bitmap result) {
-		super.onPostExecute(result);
-		imageView.setImageBitmap(result);
+	private File download(ImageCache cache) throws IOException {
+		try (Response response = NetworkStack.fetch(uri, network)) {
+			if (cancelled) {
+				return null;
+			}
+			return cache.putFile(uri, response.body().byteStream());
+		}
+	}
+
+	private Bitmap decodeFile(File file) throws IOException {
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inJustDecodeBounds = true;
+		try (InputStream input = new FileInputStream(file)) {
+			BitmapFactory.decodeStream(input, null, options);
+		}
+		options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
+		options.inJustDecodeBounds = false;
+		try (InputStream input = new FileInputStream(file)) {
+			return BitmapFactory.decodeStream(input, null, options);
+		}
+	}
+
+	/** Largest power of two that keeps both decoded dimensions at or above the requested ones. */
+	static int calculateInSampleSize(BitmapFactory.Options options, int reqWidth, int reqHeight) {
+		int inSampleSize = 1;
+		int halfHeight = options.outHeight / 2;
+		int halfWidth = options.outWidth / 2;
+
+		while (halfHeight / inSampleSize >= reqHeight && halfWidth / inSampleSize >= reqWidth) {
+			inSampleSize *= 2;
+		}
+		return inSampleSize;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,196 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.ui.PlayerView;
+import org.apache.cordova.CallbackContext;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A {@link PlayerView} laid over a rectangle of the Cordova WebView, driven by one long-lived
+ * player. Loading a new URL reuses that player, or swaps in the one prepared by
+ * {@link VideoPreloader}, so no activity is started per play.
+ *
+ * <p>Rectangles are given in CSS pixels relative to the WebView, whose parent is expected to be
+ * the {@link FrameLayout} Cordova puts it in. All methods must be called on the main thread.
+ */
+@UnstableApi
+class InlinePlayer implements Player.Listener {
+	private final Activity activity;
+	private final View webView;
+	private final PlayerView playerView;
+	private final Bundle options;
+
+	private ExoPlayer player;
+	private CallbackContext loadCallback;
+	private long loadStartMs;
+	private boolean isPausedByHost;
+
+	/**
+	 * Creates the view and its player and adds it on top of the WebView.
+	 *
+	 * @param activity The Cordova activity.
+	 * @param webView The Cordova WebView.
+	 * @param options The player options: {@code x}, {@code y}, {@code width}, {@code height},
+	 *     {@code controls} and the cache and buffering options of {@code playVideo}.
+	 */
+	public InlinePlayer(Activity activity, View webView, Bundle options) {
+		this.activity = activity;
+		this.webView = webView;
+		this.options = options;
+
+		player = PlayerPool.acquire(activity, options);
+		player.addListener(this);
+		PlaybackEvents.attach(player, "inline");
+
+		playerView = new PlayerView(activity);
+		playerView.setUseController(options.getBoolean("controls", false));
+		playerView.setPlayer(player);
+		((ViewGroup) webView.getParent()).addView(playerView, new FrameLayout.LayoutParams(0, 0));
+		setRect(options);
+	}
+
+	/** Moves and resizes the view to the {@code x}, {@code y}, {@code width} and {@code height} given. */
+	public void setRect(Bundle rect) {
+		float density = activity.getResources().getDisplayMetrics().density;
+		FrameLayout.LayoutParams params = (FrameLayout.LayoutParams) playerView.getLayoutParams();
+		params.leftMargin = webView.getLeft() + Math.round(getDouble(rect, "x") * density);
+		params.topMargin = webView.getTop() + Math.round(getDouble(rect, "y") * density);
+		params.width = Math.round(getDouble(rect, "width") * density);
+		params.height = Math.round(getDouble(rect, "height") * density);
+		playerView.setLayoutParams(params);
+	}
+
+	/**
+	 * Replaces the current media with {@code url}.
+	 *
+	 * @param url The media URL.
+	 * @param loadOptions {@code startFrom}, {@code autoplay} and {@code live}.
+	 * @param callbackContext Receives {@code {url, timeToFirstFrameMs}} once the first frame is shown.
+	 */
+	public void load(String url, Bundle loadOptions, CallbackContext callbackContext) {
+		failPendingLoad("Load replaced by " + url);
+		loadCallback = callbackContext;
+		loadStartMs = SystemClock.elapsedRealtime();
+
+		long startFromMs = (long) (loadOptions.getDouble("startFrom", 0) * 1000);
+		boolean autoplay = loadOptions.getBoolean("autoplay", true);
+
+		MediaItem mediaItem = DownloadTracker.getDownloadedMediaItem(activity, url);
+		if (mediaItem == null) {
+			mediaItem = PlayerManager.buildMediaItem(url, loadOptions);
+		}
+		mediaItem = SubtitleTracks.attach(mediaItem, SubtitleTracks.fromOptions(loadOptions));
+
+		ExoPlayer preloaded = VideoPreloader.take(activity, url, options);
+		if (preloaded != null) {
+			setPlayer(preloaded);
+			// Keeps the preloaded buffer if the item is the same, and reloads it otherwise.
+			player.replaceMediaItem(0, mediaItem);
+			if (startFromMs > 0) {
+				player.seekTo(startFromMs);
+			}
+		} else {
+			player.setMediaItem(mediaItem, startFromMs > 0 ? startFromMs : C.TIME_UNSET);
+			player.prepare();
+		}
+		isPausedByHost = false;
+		player.setPlayWhenReady(autoplay);
+	}
+
+	public void play() {
+		isPausedByHost = false;
+		player.play();
+	}
+
+	public void pause() {
+		isPausedByHost = false;
+		player.pause();
+	}
+
+	/** Pauses playback while the Cordova activity is paused, remembering whether it was playing. */
+	public void onHostPause() {
+		if (player.getPlayWhenReady()) {
+			isPausedByHost = true;
+			player.pause();
+		}
+	}
+
+	/** Resumes playback that {@link #onHostPause()} paused. */
+	public void onHostResume() {
+		if (isPausedByHost) {
+			isPausedByHost = false;
+			player.play();
+		}
+	}
+
+	/** Seeks to {@code positionMs} in the current media. */
+	public void seekTo(long positionMs) {
+		player.seekTo(positionMs);
+	}
+
+	/** Returns the player to the pool and removes the view. */
+	public void destroy() {
+		failPendingLoad("Player destroyed");
+		player.removeListener(this);
+		PlaybackEvents.detach(player);
+		playerView.setPlayer(null);
+		((ViewGroup) playerView.getParent()).removeView(playerView);
+		PlayerPool.release(player);
+	}
+
+	// Player.Listener implementation.
+	@Override
+	public void onRenderedFirstFrame() {
+		if (loadCallback == null) {
+			return;
+		}
+
+		JSONObject result = new JSONObject();
+		try {
+			MediaItem mediaItem = player.getCurrentMediaItem();
+			result.put("url", mediaItem != null && mediaItem.localConfiguration != null ? mediaItem.localConfiguration.uri.toString() : null);
+			result.put("timeToFirstFrameMs", SystemClock.elapsedRealtime() - loadStartMs);
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+		loadCallback.success(result);
+		loadCallback = null;
+	}
+
+	@Override
+	public void onPlayerError(PlaybackException error) {
+		failPendingLoad("Media Player Error: " + error.getErrorCodeName() + " (" + error.errorCode + ") " + error.getMessage());
+	}
+
+	// Internal methods.
+	private void setPlayer(ExoPlayer newPlayer) {
+		ExoPlayer oldPlayer = player;
+		oldPlayer.removeListener(this);
+		PlaybackEvents.detach(oldPlayer);
+
+		player = newPlayer;
+		player.addListener(this);
+		PlaybackEvents.attach(player, "inline");
+		playerView.setPlayer(player);
+		PlayerPool.release(oldPlayer);
+	}
+
+	private void failPendingLoad(String message) {
+		if (loadCallback != null) {
+			loadCallback.error(message);
+			loadCallback = null;
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.database.StandaloneDatabaseProvider;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.DefaultDataSource;
+import androidx.media3.datasource.FileDataSource;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.datasource.cache.CacheDataSink;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.LeastRecentlyUsedCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Process-wide on-disk segment cache shared by every {@link SimpleVideoStream} launch.
+ *
+ * <p>A {@link SimpleCache} directory may only be opened once per process, so the size cap passed
+ * to the first {@link #getInstance(Context, long)} call is the one that sticks until the app is
+ * restarted.
+ */
+@UnstableApi
+class MediaCache {
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+	private static final String TAG = "MediaCache";
+	private static final String CACHE_DIR = "streaming-media-cache";
+
+	private static MediaCache instance;
+	private static StandaloneDatabaseProvider databaseProvider;
+
+	private final SimpleCache cache;
+	private final long maxBytes;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong hitBytes = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong missBytes = new AtomicLong();
+
+	private MediaCache(Context context, long maxBytes) {
+		this.maxBytes = maxBytes;
+		File cacheDir = new File(context.getCacheDir(), CACHE_DIR);
+		cache = new SimpleCache(cacheDir, new LeastRecentlyUsedCacheEvictor(maxBytes), getDatabaseProvider(context));
+	}
+
+	/**
+	 * Returns the shared cache, creating it on first use.
+	 *
+	 * @param context A {@link Context}.
+	 * @param maxBytes The size cap used when the cache is created. Ignored afterwards.
+	 */
+	public static synchronized MediaCache getInstance(Context context, long maxBytes) {
+		if (instance == null) {
+			instance = new MediaCache(context.getApplicationContext(), maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES);
+		} else if (maxBytes > 0 && maxBytes != instance.maxBytes) {
+			Log.w(TAG, "Cache already open with " + instance.maxBytes + " bytes cap, ignoring " + maxBytes);
+		}
+		return instance;
+	}
+
+	/** Returns the database shared by the segment cache and the download index. */
+	public static synchronized StandaloneDatabaseProvider getDatabaseProvider(Context context) {
+		if (databaseProvider == null) {
+			databaseProvider = new StandaloneDatabaseProvider(context.getApplicationContext());
+		}
+		return databaseProvider;
+	}
+
+	/**
+	 * Returns the shared cache if the play options opt into it with {@code cache}, otherwise null.
+	 *
+	 * @param context A {@link Context}.
+	 * @param options The play options, optionally carrying {@code cacheSizeMb}.
+	 */
+	public static MediaCache fromOptions(Context context, Bundle options) {
+		if (options == null || !options.getBoolean("cache", false)) {
+			return null;
+		}
+
+		long maxBytes = options.getInt("cacheSizeMb", 0) * 1024L * 1024L;
+		return getInstance(context, maxBytes);
+	}
+
+	/** Returns the hit/miss counters of the shared cache, or an empty report if it was never opened. */
+	public static synchronized JSONObject getStats() throws JSONException {
+		JSONObject stats = new JSONObject();
+		stats.put("enabled", instance != null);
+		if (instance == null) {
+			return stats;
+		}
+
+		long hitBytes = instance.hitBytes.get();
+		long missBytes = instance.missBytes.get();
+		long totalBytes = hitBytes + missBytes;
+
+		stats.put("hitCount", instance.hitCount.get());
+		stats.put("missCount", instance.missCount.get());
+		stats.put("hitBytes", hitBytes);
+		stats.put("missBytes", missBytes);
+		stats.put("hitRatio", totalBytes > 0 ? (double) hitBytes / totalBytes : 0);
+		stats.put("cacheBytes", instance.cache.getCacheSpace());
+		stats.put("maxBytes", instance.maxBytes);
+		return stats;
+	}
+
+	/**
+	 * Creates a {@link DataSource.Factory} that reads through the cache and falls back to the network.
+	 *
+	 * @param upstreamFactory The network source, from {@link NetworkStack}.
+	 */
+	public DataSource.Factory buildDataSourceFactory(DefaultDataSource.Factory upstreamFactory) {
+		return () -> new CountingDataSource(upstreamFactory.createDataSource());
+	}
+
+	/**
+	 * Reads through the cache and counts each opened {@link DataSpec} once: as a miss if any of it
+	 * came from the network, otherwise as a hit if any of it was read from disk.
+	 */
+	private class CountingDataSource implements DataSource, CacheDataSource.EventListener, TransferListener {
+		private final CacheDataSource cacheDataSource;
+
+		private boolean isOpened;
+		private boolean isNetworkUsed;
+		private long cachedBytes;
+		private long networkBytes;
+
+		CountingDataSource(DataSource upstream) {
+			upstream.addTransferListener(this);
+			cacheDataSource = new CacheDataSource(cache, upstream, new FileDataSource(),
+					new CacheDataSink(cache, CacheDataSink.DEFAULT_FRAGMENT_SIZE), CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR, this);
+		}
+
+		@Override
+		public void addTransferListener(TransferListener transferListener) {
+			cacheDataSource.addTransferListener(transferListener);
+		}
+
+		@Override
+		public long open(DataSpec dataSpec) throws IOException {
+			isOpened = true;
+			isNetworkUsed = false;
+			cachedBytes = 0;
+			networkBytes = 0;
+			return cacheDataSource.open(dataSpec);
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			return cacheDataSource.read(buffer, offset, length);
+		}
+
+		@Nullable
+		@Override
+		public Uri getUri() {
+			return cacheDataSource.getUri();
+		}
+
+		@Override
+		public Map<String, List<String>> getResponseHeaders() {
+			return cacheDataSource.getResponseHeaders();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				// Reports the bytes read from disk, so it has to come first.
+				cacheDataSource.close();
+			} finally {
+				if (isOpened) {
+					isOpened = false;
+					hitBytes.addAndGet(cachedBytes);
+					missBytes.addAndGet(networkBytes);
+					if (isNetworkUsed) {
+						missCount.incrementAndGet();
+					} else if (cachedBytes > 0) {
+						hitCount.incrementAndGet();
+					}
+				}
+			}
+		}
+
+		// CacheDataSource.EventListener implementation.
+		@Override
+		public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+			cachedBytes += cachedBytesRead;
+		}
+
+		@Override
+		public void onCacheIgnored(int reason) {
+			Log.v(TAG, "Cache ignored, reason: " + reason);
+		}
+
+		// TransferListener implementation, for the network source.
+		@Override
+		public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+
+		@Override
+		public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+			if (isNetwork) {
+				isNetworkUsed = true;
+			}
+		}
+
+		@Override
+		public void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+			if (isNetwork) {
+				networkBytes += bytesTransferred;
+			}
+		}
+
+		@Override
+		public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+	}
+}
@@ -0,0 +1,218 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Shrinks what playback holds in memory when the system asks the app to trim, so a long episode
+ * is not ended by the whole app being killed.
+ *
+ * <p>At a moderate level the forward buffer of every attached player is capped, unused buffer
+ * allocations are freed, decoded images and parsed subtitles are evicted, idle pooled players are
+ * released and video is capped to 720p. At a critical level the caps tighten to 480p and a shorter
+ * buffer. Once the system no longer reports low memory the limits are lifted again. Every action
+ * is counted for diagnostics. All methods must be called on the main thread.
+ */
+@UnstableApi
+class MemoryPressure {
+	private static final String TAG = "MemoryPressure";
+
+	private static final int LEVEL_NONE = 0;
+	private static final int LEVEL_MODERATE = 1;
+	private static final int LEVEL_CRITICAL = 2;
+
+	private static final int MODERATE_BUFFER_CAP_MS = 15 * 1000;
+	private static final int CRITICAL_BUFFER_CAP_MS = 8 * 1000;
+	private static final int MODERATE_MAX_VIDEO_WIDTH = 1280;
+	private static final int MODERATE_MAX_VIDEO_HEIGHT = 720;
+	private static final int CRITICAL_MAX_VIDEO_WIDTH = 854;
+	private static final int CRITICAL_MAX_VIDEO_HEIGHT = 480;
+	private static final int RESTORE_CHECK_MS = 30 * 1000;
+
+	private static final Handler handler = new Handler(Looper.getMainLooper());
+	private static final Map<ExoPlayer, DataSaver> players = new HashMap<>();
+	private static final Runnable restoreCheck = MemoryPressure::maybeRestore;
+
+	private static Context appContext;
+	private static int level = LEVEL_NONE;
+
+	private static int trimCallbacks;
+	private static int bufferCaps;
+	private static int resolutionCaps;
+	private static int cacheEvictions;
+	private static int restores;
+
+	private MemoryPressure() {}
+
+	/**
+	 * Applies the current limits to {@code player} and keeps it updated until {@link #detach}.
+	 *
+	 * @param context A {@link Context}.
+	 * @param player The player of a playback session.
+	 * @param dataSaver The data saver of the session, which owns its video limits, or null.
+	 */
+	public static void attach(Context context, ExoPlayer player, @Nullable DataSaver dataSaver) {
+		registerCallbacks(context);
+		players.put(player, dataSaver);
+		if (level != LEVEL_NONE) {
+			apply(player, dataSaver);
+		}
+	}
+
+	/** Stops updating {@code player}. Its limits are reset when it goes back to the pool. */
+	public static void detach(ExoPlayer player) {
+		players.remove(player);
+	}
+
+	/** Returns the largest video width to select under the current pressure, or {@link Integer#MAX_VALUE}. */
+	public static int getMaxVideoWidth() {
+		switch (level) {
+			case LEVEL_CRITICAL:
+				return CRITICAL_MAX_VIDEO_WIDTH;
+			case LEVEL_MODERATE:
+				return MODERATE_MAX_VIDEO_WIDTH;
+			default:
+				return Integer.MAX_VALUE;
+		}
+	}
+
+	/** Returns the largest video height to select under the current pressure, or {@link Integer#MAX_VALUE}. */
+	public static int getMaxVideoHeight() {
+		switch (level) {
+			case LEVEL_CRITICAL:
+				return CRITICAL_MAX_VIDEO_HEIGHT;
+			case LEVEL_MODERATE:
+				return MODERATE_MAX_VIDEO_HEIGHT;
+			default:
+				return Integer.MAX_VALUE;
+		}
+	}
+
+	/** Returns the current level and how often each action was taken since the app started. */
+	public static JSONObject getStats() {
+		JSONObject stats = new JSONObject();
+		try {
+			stats.put("level", level == LEVEL_CRITICAL ? "critical" : level == LEVEL_MODERATE ? "moderate" : "none");
+			stats.put("trimCallbacks", trimCallbacks);
+			stats.put("bufferCaps", bufferCaps);
+			stats.put("resolutionCaps", resolutionCaps);
+			stats.put("cacheEvictions", cacheEvictions);
+			stats.put("restores", restores);
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+		return stats;
+	}
+
+	// Internal methods.
+	private static void registerCallbacks(Context context) {
+		if (appContext != null) {
+			return;
+		}
+
+		appContext = context.getApplicationContext();
+		appContext.registerComponentCallbacks(new ComponentCallbacks2() {
+			@Override
+			public void onTrimMemory(int trimLevel) {
+				handler.post(() -> onTrim(trimLevel));
+			}
+
+			@Override
+			public void onConfigurationChanged(Configuration newConfig) {}
+
+			@Override
+			public void onLowMemory() {
+				handler.post(() -> onTrim(ComponentCallbacks2.TRIM_MEMORY_COMPLETE));
+			}
+		});
+	}
+
+	private static void onTrim(int trimLevel) {
+		int newLevel = getLevel(trimLevel);
+		if (newLevel == LEVEL_NONE) {
+			return;
+		}
+		trimCallbacks++;
+
+		handler.removeCallbacks(restoreCheck);
+		handler.postDelayed(restoreCheck, RESTORE_CHECK_MS);
+		if (newLevel <= level) {
+			return;
+		}
+
+		Log.i(TAG, "Memory pressure " + newLevel + " at trim level " + trimLevel);
+		level = newLevel;
+		ImageCache.getInstance(appContext).evictMemory();
+		SubtitleTracks.evictMemory();
+		PlayerPool.trim();
+		cacheEvictions++;
+		for (Map.Entry<ExoPlayer, DataSaver> entry : players.entrySet()) {
+			apply(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/** Maps a trim level to a pressure level. Hiding the UI alone is no pressure. */
+	private static int getLevel(int trimLevel) {
+		if (trimLevel >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+				|| (trimLevel >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL && trimLevel < ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN)) {
+			return LEVEL_CRITICAL;
+		}
+		if (trimLevel == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+			return LEVEL_NONE;
+		}
+		return LEVEL_MODERATE;
+	}
+
+	private static void apply(ExoPlayer player, @Nullable DataSaver dataSaver) {
+		StreamingLoadControl loadControl = PlayerPool.getLoadControl(player);
+		if (loadControl != null) {
+			loadControl.setMemoryCapMs(level == LEVEL_CRITICAL ? CRITICAL_BUFFER_CAP_MS
+					: level == LEVEL_MODERATE ? MODERATE_BUFFER_CAP_MS : C.TIME_UNSET);
+			if (level != LEVEL_NONE) {
+				loadControl.releaseUnusedAllocations();
+				bufferCaps++;
+			}
+		}
+
+		if (dataSaver != null) {
+			dataSaver.applyVideoLimits();
+		} else {
+			player.setTrackSelectionParameters(player.getTrackSelectionParameters().buildUpon()
+					.setMaxVideoSize(getMaxVideoWidth(), getMaxVideoHeight())
+					.build());
+		}
+		if (level != LEVEL_NONE) {
+			resolutionCaps++;
+		}
+	}
+
+	private static void maybeRestore() {
+		ActivityManager activityManager = (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+		ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+		activityManager.getMemoryInfo(memoryInfo);
+		if (memoryInfo.lowMemory) {
+			handler.postDelayed(restoreCheck, RESTORE_CHECK_MS);
+			return;
+		}
+
+		Log.i(TAG, "Memory pressure cleared");
+		level = LEVEL_NONE;
+		restores++;
+		for (Map.Entry<ExoPlayer, DataSaver> entry : players.entrySet()) {
+			apply(entry.getKey(), entry.getValue());
+		}
+	}
+}
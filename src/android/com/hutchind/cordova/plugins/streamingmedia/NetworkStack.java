@@ -0,0 +1,323 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DefaultDataSource;
+import androidx.media3.datasource.okhttp.OkHttpDataSource;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The one HTTP stack for manifests, segments and artwork: a shared {@link OkHttpClient}, so every
+ * request reuses the same HTTP/2 and keep-alive connections, with per-request timing metrics.
+ *
+ * <p>Timeouts and headers come from the play options {@code connectTimeoutMs},
+ * {@code readTimeoutMs} and {@code headers}. Clients derived for other timeouts share the pool.
+ */
+@UnstableApi
+class NetworkStack {
+	private static final String TAG = "NetworkStack";
+	private static final int DEFAULT_TIMEOUT_MS = 8 * 1000;
+	private static final int MAX_IDLE_CONNECTIONS = 8;
+	private static final int KEEP_ALIVE_MINUTES = 5;
+	private static final int MAX_RECENT_REQUESTS = 50;
+
+	private static OkHttpClient client;
+
+	private static final ArrayDeque<JSONObject> recent = new ArrayDeque<>();
+	private static final Map<String, long[]> totalsByType = new HashMap<>();
+	private static int requestCount;
+	private static int reusedCount;
+
+	private NetworkStack() {}
+
+	/** Network settings of one play, compared to decide whether a pooled player can be reused. */
+	static final class Config {
+		static final Config DEFAULT = new Config(DEFAULT_TIMEOUT_MS, DEFAULT_TIMEOUT_MS, Collections.emptyMap());
+
+		final int connectTimeoutMs;
+		final int readTimeoutMs;
+		final Map<String, String> headers;
+
+		Config(int connectTimeoutMs, int readTimeoutMs, Map<String, String> headers) {
+			this.connectTimeoutMs = connectTimeoutMs;
+			this.readTimeoutMs = readTimeoutMs;
+			this.headers = headers;
+		}
+
+		static Config fromOptions(Bundle options) {
+			if (options == null) {
+				return DEFAULT;
+			}
+
+			Map<String, String> headers = new HashMap<>();
+			String json = options.getString("headers");
+			if (json != null) {
+				try {
+					JSONObject object = new JSONObject(json);
+					Iterator<String> keys = object.keys();
+					while (keys.hasNext()) {
+						String key = keys.next();
+						headers.put(key, object.getString(key));
+					}
+				} catch (JSONException e) {
+					Log.e(TAG, "Invalid headers option, sending none.");
+				}
+			}
+			return new Config(
+					options.getInt("connectTimeoutMs", DEFAULT_TIMEOUT_MS),
+					options.getInt("readTimeoutMs", DEFAULT_TIMEOUT_MS),
+					headers);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Config)) {
+				return false;
+			}
+			Config other = (Config) o;
+			return connectTimeoutMs == other.connectTimeoutMs
+					&& readTimeoutMs == other.readTimeoutMs
+					&& headers.equals(other.headers);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = connectTimeoutMs;
+			result = 31 * result + readTimeoutMs;
+			result = 31 * result + headers.hashCode();
+			return result;
+		}
+	}
+
+	/** Returns the shared client, or one sharing its pool with the timeouts of {@code config}. */
+	public static synchronized OkHttpClient getClient(Config config) {
+		if (client == null) {
+			client = new OkHttpClient.Builder()
+					.connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+					.connectTimeout(DEFAULT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+					.readTimeout(DEFAULT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+					.eventListenerFactory(call -> new TimingListener())
+					.build();
+		}
+
+		if (config.connectTimeoutMs == DEFAULT_TIMEOUT_MS && config.readTimeoutMs == DEFAULT_TIMEOUT_MS) {
+			return client;
+		}
+		return client.newBuilder()
+				.connectTimeout(config.connectTimeoutMs, TimeUnit.MILLISECONDS)
+				.readTimeout(config.readTimeoutMs, TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	/** Builds the upstream factory for players: HTTP(S) over the shared client, other schemes locally. */
+	public static DefaultDataSource.Factory buildDataSourceFactory(Context context, Config config) {
+		OkHttpDataSource.Factory httpFactory = new OkHttpDataSource.Factory(getClient(config))
+				.setDefaultRequestProperties(config.headers);
+		return new DefaultDataSource.Factory(context, httpFactory);
+	}
+
+	/** Fetches {@code url} with the shared client and default settings. The caller closes the response. */
+	public static Response fetch(String url) throws IOException {
+		return fetch(url, Config.DEFAULT);
+	}
+
+	/** Fetches {@code url} with the headers and timeouts of a play. The caller closes the response. */
+	public static Response fetch(String url, Config config) throws IOException {
+		Request.Builder request = new Request.Builder().url(url);
+		for (Map.Entry<String, String> header : config.headers.entrySet()) {
+			request.header(header.getKey(), header.getValue());
+		}
+
+		Response response = getClient(config).newCall(request.build()).execute();
+		if (!response.isSuccessful()) {
+			response.close();
+			throw new IOException("HTTP " + response.code() + " for " + url);
+		}
+		return response;
+	}
+
+	/** Returns request counts, connection reuse and average timings per request type, plus the latest requests. */
+	public static synchronized JSONObject getStats() throws JSONException {
+		JSONObject byType = new JSONObject();
+		for (Map.Entry<String, long[]> entry : totalsByType.entrySet()) {
+			long[] totals = entry.getValue();
+			JSONObject type = new JSONObject();
+			type.put("count", totals[0]);
+			type.put("avgTtfbMs", totals[0] > 0 ? totals[1] / totals[0] : 0);
+			type.put("avgTotalMs", totals[0] > 0 ? totals[2] / totals[0] : 0);
+			type.put("bytes", totals[3]);
+			byType.put(entry.getKey(), type);
+		}
+
+		JSONObject stats = new JSONObject();
+		stats.put("requests", requestCount);
+		stats.put("reusedConnections", reusedCount);
+		stats.put("reuseRatio", requestCount > 0 ? (double) reusedCount / requestCount : 0);
+		stats.put("byType", byType);
+		stats.put("recent", new JSONArray(recent));
+		return stats;
+	}
+
+	private static synchronized void record(JSONObject timing, String type, long ttfbMs, long totalMs, long bytes, boolean reused) {
+		requestCount++;
+		if (reused) {
+			reusedCount++;
+		}
+
+		long[] totals = totalsByType.get(type);
+		if (totals == null) {
+			totals = new long[4];
+			totalsByType.put(type, totals);
+		}
+		totals[0]++;
+		totals[1] += ttfbMs;
+		totals[2] += totalMs;
+		totals[3] += bytes;
+
+		recent.addLast(timing);
+		if (recent.size() > MAX_RECENT_REQUESTS) {
+			recent.removeFirst();
+		}
+	}
+
+	private static String getRequestType(String path) {
+		path = path.toLowerCase();
+		if (path.endsWith(".m3u8") || path.endsWith(".mpd") || path.endsWith(".ism/manifest") || path.endsWith(".vtt")) {
+			return "manifest";
+		} else if (path.endsWith(".jpg") || path.endsWith(".jpeg") || path.endsWith(".png") || path.endsWith(".webp")) {
+			return "image";
+		}
+		return "media";
+	}
+
+	/** Times the phases of one call. OkHttp calls it on its own threads, one call at a time. */
+	private static class TimingListener extends EventListener {
+		private long callStartMs;
+		private long dnsStartMs;
+		private long dnsMs;
+		private long connectStartMs;
+		private long connectMs;
+		private long secureConnectStartMs;
+		private long tlsMs;
+		private long responseHeadersMs;
+		private long bytes;
+		private boolean connected;
+		private String protocol;
+
+		@Override
+		public void callStart(Call call) {
+			callStartMs = SystemClock.elapsedRealtime();
+		}
+
+		@Override
+		public void dnsStart(Call call, String domainName) {
+			dnsStartMs = SystemClock.elapsedRealtime();
+		}
+
+		@Override
+		public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+			dnsMs = SystemClock.elapsedRealtime() - dnsStartMs;
+		}
+
+		@Override
+		public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+			connected = true;
+			connectStartMs = SystemClock.elapsedRealtime();
+		}
+
+		@Override
+		public void secureConnectStart(Call call) {
+			secureConnectStartMs = SystemClock.elapsedRealtime();
+		}
+
+		@Override
+		public void secureConnectEnd(Call call, Handshake handshake) {
+			tlsMs = SystemClock.elapsedRealtime() - secureConnectStartMs;
+		}
+
+		@Override
+		public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+			connectMs = SystemClock.elapsedRealtime() - connectStartMs;
+		}
+
+		@Override
+		public void connectionAcquired(Call call, Connection connection) {
+			protocol = connection.protocol().toString();
+		}
+
+		@Override
+		public void responseHeadersEnd(Call call, Response response) {
+			responseHeadersMs = SystemClock.elapsedRealtime();
+		}
+
+		@Override
+		public void responseBodyEnd(Call call, long byteCount) {
+			bytes = byteCount;
+		}
+
+		@Override
+		public void callEnd(Call call) {
+			finish(call, null);
+		}
+
+		@Override
+		public void callFailed(Call call, IOException ioe) {
+			finish(call, ioe);
+		}
+
+		private void finish(Call call, IOException error) {
+			long totalMs = SystemClock.elapsedRealtime() - callStartMs;
+			boolean reused = protocol != null && !connected;
+			long ttfbMs = responseHeadersMs > 0 ? responseHeadersMs - callStartMs : totalMs;
+			String type = getRequestType(call.request().url().encodedPath());
+
+			JSONObject timing = new JSONObject();
+			try {
+				timing.put("url", call.request().url().toString());
+				timing.put("type", type);
+				timing.put("protocol", protocol);
+				timing.put("reused", reused);
+				timing.put("dnsMs", dnsMs);
+				timing.put("connectMs", connectMs);
+				timing.put("tlsMs", tlsMs);
+				timing.put("ttfbMs", ttfbMs);
+				timing.put("totalMs", totalMs);
+				timing.put("bytes", bytes);
+				if (error != null) {
+					timing.put("error", error.getMessage());
+				}
+			} catch (JSONException e) {
+				e.printStackTrace();
+			}
+			record(timing, type, ttfbMs, totalMs, bytes, reused);
+		}
+	}
+}
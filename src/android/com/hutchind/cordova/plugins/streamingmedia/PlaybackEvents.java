@@ -0,0 +1,228 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.media3.common.C;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Streams playback events of the attached players to the callback registered through
+ * {@code setEventListener}.
+ *
+ * <p>At most one event is sent per interval. Events arriving in between are coalesced into the
+ * next one: an error is never replaced, a state change replaces a position update, and the
+ * snapshot is always taken when the event is sent. All methods must be called on the main thread.
+ */
+@UnstableApi
+class PlaybackEvents {
+	private static final int DEFAULT_INTERVAL_MS = 1000;
+
+	private static final String TYPE_POSITION = "position";
+	private static final String TYPE_STATE = "state";
+	private static final String TYPE_ERROR = "error";
+
+	private static final Handler handler = new Handler(Looper.getMainLooper());
+	private static final Map<Player, Listener> listeners = new HashMap<>();
+	private static final Runnable sender = PlaybackEvents::send;
+	private static final Runnable ticker = PlaybackEvents::tick;
+
+	private static CallbackContext callbackContext;
+	private static int intervalMs = DEFAULT_INTERVAL_MS;
+	private static long lastSentMs;
+
+	private static Listener pendingSource;
+	private static String pendingType;
+	private static PlaybackException pendingError;
+
+	private PlaybackEvents() {}
+
+	/**
+	 * Reads the {@code eventIntervalMs} listener option.
+	 *
+	 * @param options The listener options, or null.
+	 * @throws IllegalArgumentException If the interval is negative.
+	 */
+	public static int getIntervalMs(JSONObject options) {
+		int intervalMs = options != null ? options.optInt("eventIntervalMs", DEFAULT_INTERVAL_MS) : DEFAULT_INTERVAL_MS;
+		if (intervalMs < 0) {
+			throw new IllegalArgumentException("eventIntervalMs must not be negative");
+		}
+		return intervalMs;
+	}
+
+	/**
+	 * Sets the callback that receives events, replacing any previous one.
+	 *
+	 * @param callback The callback, kept open across events.
+	 * @param eventIntervalMs The minimum time between two events.
+	 */
+	public static void setCallback(CallbackContext callback, int eventIntervalMs) {
+		callbackContext = callback;
+		intervalMs = Math.max(eventIntervalMs, 0);
+		handler.removeCallbacks(ticker);
+		if (callback == null) {
+			handler.removeCallbacks(sender);
+			clearPending();
+		} else if (!listeners.isEmpty()) {
+			handler.postDelayed(ticker, intervalMs);
+		}
+	}
+
+	/** Starts reporting events of {@code player}, labelled with {@code source}. */
+	public static void attach(Player player, String source) {
+		if (listeners.containsKey(player)) {
+			return;
+		}
+
+		Listener listener = new Listener(player, source);
+		listeners.put(player, listener);
+		player.addListener(listener);
+		if (callbackContext != null && listeners.size() == 1) {
+			handler.removeCallbacks(ticker);
+			handler.postDelayed(ticker, intervalMs);
+		}
+	}
+
+	/** Stops reporting events of {@code player} and drops its pending event, if any. */
+	public static void detach(Player player) {
+		Listener listener = listeners.remove(player);
+		if (listener == null) {
+			return;
+		}
+
+		player.removeListener(listener);
+		if (pendingSource == listener) {
+			handler.removeCallbacks(sender);
+			clearPending();
+		}
+		if (listeners.isEmpty()) {
+			handler.removeCallbacks(ticker);
+		}
+	}
+
+	// Internal methods.
+	private static void post(Listener source, String type, PlaybackException error) {
+		if (callbackContext == null) {
+			return;
+		}
+
+		if (TYPE_ERROR.equals(pendingType) && !TYPE_ERROR.equals(type)) {
+			return;
+		}
+		if (TYPE_STATE.equals(pendingType) && TYPE_POSITION.equals(type)) {
+			return;
+		}
+		pendingSource = source;
+		pendingType = type;
+		pendingError = error;
+
+		handler.removeCallbacks(sender);
+		long waitMs = lastSentMs + intervalMs - SystemClock.elapsedRealtime();
+		if (waitMs <= 0) {
+			send();
+		} else {
+			handler.postDelayed(sender, waitMs);
+		}
+	}
+
+	private static void send() {
+		if (pendingType == null || callbackContext == null) {
+			return;
+		}
+
+		JSONObject event = pendingSource.toJson(pendingType, pendingError);
+		clearPending();
+		lastSentMs = SystemClock.elapsedRealtime();
+
+		PluginResult result = new PluginResult(PluginResult.Status.OK, event);
+		result.setKeepCallback(true);
+		callbackContext.sendPluginResult(result);
+	}
+
+	private static void clearPending() {
+		pendingSource = null;
+		pendingType = null;
+		pendingError = null;
+	}
+
+	private static void tick() {
+		if (callbackContext == null || listeners.isEmpty()) {
+			return;
+		}
+
+		for (Listener listener : listeners.values()) {
+			if (listener.player.isPlaying()) {
+				post(listener, TYPE_POSITION, null);
+			}
+		}
+		handler.postDelayed(ticker, Math.max(intervalMs, DEFAULT_INTERVAL_MS / 4));
+	}
+
+	private static class Listener implements Player.Listener {
+		final Player player;
+		final String source;
+
+		Listener(Player player, String source) {
+			this.player = player;
+			this.source = source;
+		}
+
+		@Override
+		public void onPlaybackStateChanged(@Player.State int playbackState) {
+			post(this, TYPE_STATE, null);
+		}
+
+		@Override
+		public void onIsPlayingChanged(boolean isPlaying) {
+			post(this, TYPE_STATE, null);
+		}
+
+		@Override
+		public void onPlayerError(PlaybackException error) {
+			post(this, TYPE_ERROR, error);
+		}
+
+		JSONObject toJson(String type, PlaybackException error) {
+			JSONObject event = new JSONObject();
+			try {
+				event.put("type", type);
+				event.put("source", source);
+				event.put("state", getStateName(player.getPlaybackState()));
+				event.put("playing", player.isPlaying());
+				event.put("position", player.getCurrentPosition() / 1000.0);
+				event.put("bufferedPosition", player.getBufferedPosition() / 1000.0);
+				long durationMs = player.getDuration();
+				event.put("duration", durationMs != C.TIME_UNSET ? durationMs / 1000.0 : -1);
+				if (error != null) {
+					event.put("error", error.getErrorCodeName() + ": " + error.getMessage());
+					event.put("category", ErrorRecovery.classify(error));
+				}
+			} catch (JSONException e) {
+				e.printStackTrace();
+			}
+			return event;
+		}
+
+		private static String getStateName(@Player.State int state) {
+			switch (state) {
+				case Player.STATE_BUFFERING:
+					return "buffering";
+				case Player.STATE_READY:
+					return "ready";
+				case Player.STATE_ENDED:
+					return "ended";
+				default:
+					return "idle";
+			}
+		}
+	}
+}
@@ -1,77 +1,233 @@
 package com.hutchind.cordova.plugins.streamingmedia;
 
 import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.KeyEvent;
+import android.view.View;
+import androidx.annotation.Nullable;
 import androidx.annotation.OptIn;
 import androidx.media3.cast.CastPlayer;
 import androidx.media3.cast.SessionAvailabilityListener;
 import androidx.media3.common.C;
 import androidx.media3.common.MediaItem;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.PlaybackParameters;
 import androidx.media3.common.Player;
 import androidx.media3.common.Timeline;
+import androidx.media3.common.TrackSelectionParameters;
 import androidx.media3.common.Tracks;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.exoplayer.ExoPlayer;
 import androidx.media3.ui.PlayerControlView;
 import androidx.media3.ui.PlayerView;
+import com.google.android.gms.cast.MediaInfo;
+import com.google.android.gms.cast.MediaTrack;
 import com.google.android.gms.cast.framework.CastContext;
+import com.google.android.gms.cast.framework.CastSession;
+import com.google.android.gms.cast.framework.media.RemoteMediaClient;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 @UnstableApi
 class PlayerManager implements Player.Listener, SessionAvailabilityListener {
+	private static final String TAG = "PlayerManager";
 	private static final int ENDING_THRESHOLD_MS = 60 * 1000;
+	private static final int DEFAULT_PRELOAD_NEXT_MS = 10 * 1000;
 
-	private final PlayerView playerView;
-	private final Player localPlayer;
+	private PlayerView playerView;
+	private final ExoPlayer localPlayer;
 	private final CastPlayer castPlayer;
+	private final CastContext castContext;
 
 	private Player currentPlayer;
-	private final MediaItem mediaItem;
+	private final List<MediaItem> mediaItems;
+	private final long[] startPositionsMs;
+	private final boolean[] isStartPositionApplied;
+	private final long[] finishPositionsMs;
+	private final boolean[] isPlayed;
+
+	private final QoeTracker qoeTracker;
+	@Nullable private final DataSaver dataSaver;
+	private final ErrorRecovery errorRecovery;
+	private final ResumeStore.Checkpoint checkpoint;
+
+	// Caps track selection to the pixels actually on screen rather than the whole display.
+	private final View.OnLayoutChangeListener viewportListener = (v, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> {
+		int width = right - left;
+		int height = bottom - top;
+		if (width > 0 && height > 0 && (width != oldRight - oldLeft || height != oldBottom - oldTop)) {
+			setPlayerViewportSize(width, height);
+		}
+	};
 
-	private boolean isAlreadySought = false;
-	private long startFrom;
+	private boolean isLocalPlayerPrepared;
+	private long handoffStartMs = C.TIME_UNSET;
+	private boolean isHandoffWarm;
+	@Nullable private String handoffAudioLanguage;
+	@Nullable private String handoffTextLanguage;
 
 	/**
-	 * Creates a new manager for {@link ExoPlayer} and {@link CastPlayer}.
+	 * Creates a new manager for {@link ExoPlayer} and {@link CastPlayer}. A player preloaded through
+	 * {@link VideoPreloader} for the same URL is reused, otherwise one is borrowed from
+	 * {@link PlayerPool}.
 	 *
 	 * @param context A {@link Context}.
 	 * @param playerView The {@link PlayerView} for playback.
 	 * @param castContext The {@link CastContext}.
+	 * @param mediaItems The queue to play, in order.
+	 * @param preferredLanguage The preferred audio and text language.
+	 * @param startPositionsMs The position to start each item from, 0 for its beginning.
+	 * @param options The play options, used to configure the local player.
 	 */
-	public PlayerManager(Context context, PlayerView playerView, CastContext castContext, MediaItem mediaItem, String preferredLanguage, long startFrom) {
+	public PlayerManager(Context context, PlayerView playerView, CastContext castContext, List<MediaItem> mediaItems, String preferredLanguage, long[] startPositionsMs, Bundle options) {
 		this.playerView = playerView;
-		this.mediaItem = mediaItem;
-		this.startFrom = startFrom;
-
-		localPlayer = new ExoPlayer.Builder(context)
-				.setVideoScalingMode(C.VIDEO_SCALING_MODE_SCALE_TO_FIT_WITH_CROPPING)
-				.build();
+		this.mediaItems = mediaItems;
+		this.startPositionsMs = startPositionsMs;
+		this.isStartPositionApplied = new boolean[mediaItems.size()];
+		this.finishPositionsMs = startPositionsMs.clone();
+		this.isPlayed = new boolean[mediaItems.size()];
+
+		ExoPlayer preloadedPlayer = VideoPreloader.take(context, mediaItems.get(0).localConfiguration.uri.toString(), options);
+		isLocalPlayerPrepared = preloadedPlayer != null;
+		localPlayer = isLocalPlayerPrepared ? preloadedPlayer : PlayerPool.acquire(context, options);
 		localPlayer.addListener(this);
+		// Lets the next queue item resolve its manifest and first segments before the current one ends.
+		localPlayer.setPreloadConfiguration(new ExoPlayer.PreloadConfiguration(
+				(options != null ? options.getInt("preloadNextMs", DEFAULT_PRELOAD_NEXT_MS) : DEFAULT_PRELOAD_NEXT_MS) * 1000L));
 		setPlayerPreferredLanguage(localPlayer, preferredLanguage);
+		setPlayerBitrateLimits(localPlayer, options);
+		dataSaver = DataSaver.attach(context, localPlayer, options);
+		MemoryPressure.attach(context, localPlayer, dataSaver);
+		errorRecovery = ErrorRecovery.attach(localPlayer, options, null);
+		playerView.addOnLayoutChangeListener(viewportListener);
+
+		qoeTracker = new QoeTracker(localPlayer, options != null && options.getBoolean("qoeUpdates", false) ? StreamingMedia::sendQoeUpdate : null);
+		localPlayer.addAnalyticsListener(qoeTracker);
+		PlaybackEvents.attach(localPlayer, "video");
+
+		if (options != null && options.getBoolean("rememberPosition", false)) {
+			checkpoint = new ResumeStore.Checkpoint(context, localPlayer);
+			checkpoint.start();
+		} else {
+			checkpoint = null;
+		}
 
+		this.castContext = castContext;
 		castPlayer = new CastPlayer(castContext);
 		castPlayer.addListener(this);
 		castPlayer.setSessionAvailabilityListener(this);
+		PlaybackEvents.attach(castPlayer, "video");
 		setPlayerPreferredLanguage(castPlayer, preferredLanguage);
 
 		setCurrentPlayer(castPlayer.isCastSessionAvailable() ? castPlayer : localPlayer);
 	}
 
+	/**
+	 * Builds the {@link MediaItem} for a URL, with its type from {@link ContentTypeResolver}.
+	 *
+	 * @param url The media URL.
+	 */
+	public static MediaItem buildMediaItem(String url) {
+		return buildMediaItem(url, null);
+	}
+
+	/**
+	 * Builds the {@link MediaItem} for a URL, applying the {@code mimeType} and {@code live} play
+	 * options if present.
+	 *
+	 * @param url The media URL.
+	 * @param options The play options, or null.
+	 */
+	public static MediaItem buildMediaItem(String url, Bundle options) {
+		MediaItem.Builder builder = new MediaItem.Builder().setUri(url)
+				.setMimeType(ContentTypeResolver.resolve(url, options));
+
+		String live = options != null ? options.getString("live") : null;
+		if (live != null) {
+			builder.setLiveConfiguration(buildLiveConfiguration(live));
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Parses the {@code live} option block. Values left out keep the defaults of the stream, which
+	 * for low-latency HLS come from its {@code PART-HOLD-BACK}.
+	 */
+	private static MediaItem.LiveConfiguration buildLiveConfiguration(String json) {
+		MediaItem.LiveConfiguration.Builder builder = new MediaItem.LiveConfiguration.Builder();
+		try {
+			JSONObject live = new JSONObject(json);
+			builder.setTargetOffsetMs(live.optLong("targetOffsetMs", C.TIME_UNSET))
+					.setMinOffsetMs(live.optLong("minOffsetMs", C.TIME_UNSET))
+					.setMaxOffsetMs(live.optLong("maxOffsetMs", C.TIME_UNSET))
+					.setMinPlaybackSpeed((float) live.optDouble("minPlaybackSpeed", C.RATE_UNSET))
+					.setMaxPlaybackSpeed((float) live.optDouble("maxPlaybackSpeed", C.RATE_UNSET));
+		} catch (JSONException e) {
+			Log.e(TAG, "Invalid live option, using stream defaults.");
+		}
+		return builder.build();
+	}
+
 	// Queue manipulation methods.
+	/**
+	 * Stops playback and records where the current item was left.
+	 *
+	 * @return The position to resume the current item from, 0 if it was (nearly) finished.
+	 */
 	public long stop() {
+		long position = 0;
+		if (currentPlayer != null) {
+			position = getFinishPosition(currentPlayer.getCurrentPosition(), currentPlayer.getDuration());
+			recordFinishPosition(currentPlayer.getCurrentMediaItemIndex(), position);
+		}
+
 		if (castPlayer != null) {
 			castPlayer.stop();
 		}
 
 		if (localPlayer != null) {
 			localPlayer.stop();
+		}
 
-			long duration = localPlayer.getDuration();
-			long position = localPlayer.getCurrentPosition();
+		return position;
+	}
 
-			return duration - position < ENDING_THRESHOLD_MS ? 0 : position;
+	/** Returns the resume position of every queue item, as {@code [{url, finishAt, played}]} in seconds. */
+	public JSONArray getItemResults() {
+		JSONArray results = new JSONArray();
+		for (int i = 0; i < mediaItems.size(); i++) {
+			JSONObject item = new JSONObject();
+			try {
+				item.put("url", mediaItems.get(i).localConfiguration.uri.toString());
+				item.put("finishAt", finishPositionsMs[i] / 1000.0);
+				item.put("played", isPlayed[i]);
+			} catch (JSONException e) {
+				e.printStackTrace();
+			}
+			results.put(item);
 		}
+		return results;
+	}
 
-		return 0;
+	/** Returns the quality-of-experience metrics of the local playback session so far. */
+	public JSONObject getQoe() {
+		JSONObject qoe = qoeTracker.toJson();
+		try {
+			if (dataSaver != null) {
+				qoe.put("dataSaver", dataSaver.toJson());
+			}
+			qoe.put("memoryPressure", MemoryPressure.getStats());
+			qoe.put("errors", errorRecovery.toJson());
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+		return qoe;
 	}
 
 	/**
@@ -84,38 +240,105 @@ class PlayerManager implements Player.Listener, SessionAvailabilityListener {
 		return playerView.dispatchKeyEvent(event);
 	}
 
-	/** Releases the manager and the players that it holds. */
+	/** Returns the player in use, local or Cast. */
+	public Player getCurrentPlayer() {
+		return currentPlayer;
+	}
+
+	/**
+	 * Moves playback to the {@link PlayerView} of a recreated activity. The player keeps its
+	 * decoder and buffer, so playback continues without a new prepare.
+	 *
+	 * @param newPlayerView The view to render to from now on.
+	 */
+	@OptIn(markerClass = UnstableApi.class)
+	public void setPlayerView(PlayerView newPlayerView) {
+		playerView.removeOnLayoutChangeListener(viewportListener);
+		PlayerView.switchTargetView(currentPlayer, playerView, newPlayerView);
+		playerView = newPlayerView;
+		playerView.addOnLayoutChangeListener(viewportListener);
+		configurePlayerView(currentPlayer);
+	}
+
+	/** Records the position of the current item, and persists it if {@code rememberPosition} is set. */
+	public void saveResumePosition() {
+		if (currentPlayer != null && currentPlayer.getPlaybackState() != Player.STATE_IDLE) {
+			recordFinishPosition(currentPlayer.getCurrentMediaItemIndex(),
+					getFinishPosition(currentPlayer.getCurrentPosition(), currentPlayer.getDuration()));
+		}
+		ResumeStore.flush();
+	}
+
+	/** Releases the manager and the cast player, and returns the local player to {@link PlayerPool}. */
 	public void release() {
+		if (checkpoint != null) {
+			checkpoint.stop();
+		}
+		ResumeStore.flush();
 		castPlayer.setSessionAvailabilityListener(null);
+		PlaybackEvents.detach(castPlayer);
+		PlaybackEvents.detach(localPlayer);
 		castPlayer.release();
 		playerView.setPlayer(null);
-		localPlayer.release();
+		playerView.removeOnLayoutChangeListener(viewportListener);
+		localPlayer.removeListener(this);
+		localPlayer.removeAnalyticsListener(qoeTracker);
+		MemoryPressure.detach(localPlayer);
+		errorRecovery.release();
+		if (dataSaver != null) {
+			dataSaver.release();
+		}
+		PlayerPool.release(localPlayer);
 	}
 
 	// Player.Listener implementation.
 	@Override
 	public void onPlaybackStateChanged(@Player.State int playbackState) {
-		if (playbackState == ExoPlayer.STATE_READY && !isAlreadySought) {
-			long duration = localPlayer.getDuration();
+		if (playbackState == ExoPlayer.STATE_READY) {
+			maybeSeekToStartPosition();
+			maybeCompleteHandoff();
+		}
+	}
 
-			if (duration - startFrom < ENDING_THRESHOLD_MS) {
-				startFrom = 0;
-			}
+	@Override
+	public void onPositionDiscontinuity(Player.PositionInfo oldPosition, Player.PositionInfo newPosition, int reason) {
+		if (oldPosition.mediaItemIndex == newPosition.mediaItemIndex || currentPlayer != localPlayer) {
+			return;
+		}
 
-			localPlayer.seekTo(startFrom);
-			isAlreadySought = true;
+		if (reason == Player.DISCONTINUITY_REASON_AUTO_TRANSITION) {
+			recordFinishPosition(oldPosition.mediaItemIndex, 0);
+		} else {
+			long durationMs = C.TIME_UNSET;
+			Timeline timeline = localPlayer.getCurrentTimeline();
+			if (oldPosition.mediaItemIndex < timeline.getWindowCount()) {
+				durationMs = timeline.getWindow(oldPosition.mediaItemIndex, new Timeline.Window()).getDurationMs();
+			}
+			recordFinishPosition(oldPosition.mediaItemIndex, getFinishPosition(oldPosition.positionMs, durationMs));
 		}
 	}
 
 	@Override
-	public void onPositionDiscontinuity(Player.PositionInfo oldPosition, Player.PositionInfo newPosition, int reason) {}
+	public void onMediaItemTransition(MediaItem mediaItem, @Player.MediaItemTransitionReason int reason) {
+		maybeSeekToStartPosition();
+	}
 
 	@Override
-	public void onTimelineChanged(Timeline timeline, int reason) {}
+	public void onTimelineChanged(Timeline timeline, int reason) {
+		maybeSeekToStartPosition();
+	}
 
 	@Override
 	public void onTracksChanged(Tracks tracks) {}
 
+	@Override
+	public void onPlayerError(PlaybackException error) {
+		// Cast errors come from the receiver, which picks its own content type.
+		if (currentPlayer == localPlayer) {
+			ContentTypeResolver.onPlaybackFailed(localPlayer.getCurrentMediaItem(), error);
+		}
+	}
+
 	// CastPlayer.SessionAvailabilityListener implementation.
 	@Override
 	public void onCastSessionAvailable() {
@@ -128,6 +351,48 @@ class PlayerManager implements Player.Listener, SessionAvailabilityListener {
 	}
 
 	// Internal methods.
+	/**
+	 * Applies the start position of the current item once its duration is known. Items that would
+	 * start within the ending threshold start from the beginning instead.
+	 */
+	private void maybeSeekToStartPosition() {
+		if (currentPlayer != localPlayer) {
+			return;
+		}
+
+		int index = localPlayer.getCurrentMediaItemIndex();
+		long duration = localPlayer.getDuration();
+		if (index >= mediaItems.size() || isStartPositionApplied[index] || duration == C.TIME_UNSET) {
+			return;
+		}
+
+		isStartPositionApplied[index] = true;
+		isPlayed[index] = true;
+		long startPositionMs = startPositionsMs[index];
+		if (startPositionMs > 0 && duration - startPositionMs >= ENDING_THRESHOLD_MS) {
+			localPlayer.seekTo(index, startPositionMs);
+		}
+	}
+
+	static long getFinishPosition(long positionMs, long durationMs) {
+		return durationMs != C.TIME_UNSET && durationMs - positionMs < ENDING_THRESHOLD_MS ? 0 : positionMs;
+	}
+
+	private boolean isLive(int index) {
+		Timeline timeline = localPlayer.getCurrentTimeline();
+		return index < timeline.getWindowCount() && timeline.getWindow(index, new Timeline.Window()).isLive();
+	}
+
+	private void recordFinishPosition(int index, long positionMs) {
+		if (index < finishPositionsMs.length) {
+			finishPositionsMs[index] = positionMs;
+			isPlayed[index] = true;
+			if (checkpoint != null && !isLive(index)) {
+				ResumeStore.save(playerView.getContext(), mediaItems.get(index).localConfiguration.uri.toString(), positionMs);
+			}
+		}
+	}
+
 	private void setPlayerPreferredLanguage(Player player, String preferredLanguage) {
 		player.setTrackSelectionParameters(
 				player.getTrackSelectionParameters().buildUpon()
@@ -137,24 +402,54 @@ class PlayerManager implements Player.Listener, SessionAvailabilityListener {
 		);
 	}
 
-	@OptIn(markerClass = UnstableApi.class)
-	private void setCurrentPlayer(Player currentPlayer) {
-		if (this.currentPlayer == currentPlayer) {
+	private void setPlayerBitrateLimits(Player player, Bundle options) {
+		if (options == null) {
 			return;
 		}
 
-		playerView.setPlayer(currentPlayer);
-		playerView.setControllerHideOnTouch(currentPlayer == localPlayer);
-		if (currentPlayer == castPlayer) {
+		TrackSelectionParameters.Builder builder = player.getTrackSelectionParameters().buildUpon();
+		if (options.containsKey("minVideoBitrate")) {
+			builder.setMinVideoBitrate(options.getInt("minVideoBitrate"));
+		}
+		if (options.containsKey("maxVideoBitrate")) {
+			builder.setMaxVideoBitrate(options.getInt("maxVideoBitrate"));
+		}
+		player.setTrackSelectionParameters(builder.build());
+	}
+
+	private void setPlayerViewportSize(int width, int height) {
+		localPlayer.setTrackSelectionParameters(
+				localPlayer.getTrackSelectionParameters().buildUpon()
+						.setViewportSize(width, height, true)
+						.build()
+		);
+	}
+
+	@OptIn(markerClass = UnstableApi.class)
+	private void configurePlayerView(Player player) {
+		playerView.setControllerHideOnTouch(player == localPlayer);
+		if (player == castPlayer) {
 			playerView.setControllerShowTimeoutMs(0);
 			playerView.showController();
-		} else { // currentPlayer == localPlayer
+		} else { // player == localPlayer
 			playerView.setControllerShowTimeoutMs(PlayerControlView.DEFAULT_SHOW_TIMEOUT_MS);
 			playerView.setDefaultArtwork(null);
 		}
+	}
+
+	@OptIn(markerClass = UnstableApi.class)
+	private void setCurrentPlayer(Player currentPlayer) {
+		if (this.currentPlayer == currentPlayer) {
+			return;
+		}
+
+		playerView.setPlayer(currentPlayer);
+		configurePlayerView(currentPlayer);
 
 		// Player state management.
 		long playbackPositionMs = C.TIME_UNSET;
+		int mediaItemIndex = 0;
+		PlaybackParameters playbackParameters = PlaybackParameters.DEFAULT;
 
 		Player previousPlayer = this.currentPlayer;
 		if (previousPlayer != null) {
@@ -162,16 +457,148 @@ class PlayerManager implements Player.Listener, SessionAvailabilityListener {
 			int playbackState = previousPlayer.getPlaybackState();
 			if (playbackState != Player.STATE_ENDED) {
 				playbackPositionMs = previousPlayer.getCurrentPosition();
+				mediaItemIndex = previousPlayer.getCurrentMediaItemIndex();
 			}
-
-			previousPlayer.stop();
-			previousPlayer.clearMediaItems();
+			playbackParameters = previousPlayer.getPlaybackParameters();
+			handoffAudioLanguage = getSelectedLanguage(previousPlayer.getCurrentTracks(), C.TRACK_TYPE_AUDIO);
+			handoffTextLanguage = getSelectedLanguage(previousPlayer.getCurrentTracks(), C.TRACK_TYPE_TEXT);
+
+			if (previousPlayer == localPlayer) {
+				// Keep the local buffer, decoders and track selection for a return from Cast.
+				localPlayer.pause();
+			} else {
+				previousPlayer.stop();
+				previousPlayer.clearMediaItems();
+			}
+			handoffStartMs = SystemClock.elapsedRealtime();
 		}
 
 		this.currentPlayer = currentPlayer;
+		if (currentPlayer == localPlayer && previousPlayer != null) {
+			applyHandoffLanguages();
+		}
+		isHandoffWarm = currentPlayer == localPlayer && previousPlayer != null
+				&& localPlayer.getPlaybackState() != Player.STATE_IDLE
+				&& localPlayer.getMediaItemCount() == mediaItems.size();
+
+		if (isHandoffWarm) {
+			// The local player still holds the queue; seeking keeps whatever of its buffer is still usable.
+			if (playbackPositionMs == C.TIME_UNSET) {
+				localPlayer.seekToDefaultPosition(0);
+			} else {
+				isStartPositionApplied[mediaItemIndex] = true;
+				localPlayer.seekTo(mediaItemIndex, playbackPositionMs);
+			}
+			localPlayer.setPlaybackParameters(playbackParameters);
+			localPlayer.play();
+			maybeCompleteHandoff();
+			return;
+		}
 
-		currentPlayer.setMediaItem(mediaItem, playbackPositionMs);
+		if (currentPlayer == localPlayer && isLocalPlayerPrepared && previousPlayer == null) {
+			// Preloaded player already holds the first item and its first seconds of buffer. Replacing
+			// the item keeps that buffer if this play's item is the same, and reloads it otherwise.
+			isLocalPlayerPrepared = false;
+			localPlayer.replaceMediaItem(0, mediaItems.get(0));
+			localPlayer.addMediaItems(mediaItems.subList(1, mediaItems.size()));
+			currentPlayer.setPlayWhenReady(true);
+			if (currentPlayer.getPlaybackState() == Player.STATE_READY) {
+				maybeSeekToStartPosition();
+			}
+			return;
+		}
+
+		if (playbackPositionMs == C.TIME_UNSET) {
+			currentPlayer.setMediaItems(mediaItems);
+		} else {
+			currentPlayer.setMediaItems(mediaItems, mediaItemIndex, playbackPositionMs);
+		}
+		if (currentPlayer.isCommandAvailable(Player.COMMAND_SET_SPEED_AND_PITCH)) {
+			currentPlayer.setPlaybackParameters(playbackParameters);
+		}
 		currentPlayer.setPlayWhenReady(true);
 		currentPlayer.prepare();
 	}
+
+	/** Reports the time from a switch between local and Cast playback until the new player is ready. */
+	private void maybeCompleteHandoff() {
+		if (handoffStartMs == C.TIME_UNSET || currentPlayer.getPlaybackState() != Player.STATE_READY) {
+			return;
+		}
+
+		if (currentPlayer == castPlayer) {
+			// The receiver only lists the tracks of the stream once it has loaded it.
+			applyHandoffLanguagesOnCast();
+		}
+		qoeTracker.onHandoff(currentPlayer == castPlayer ? "cast" : "local", isHandoffWarm, SystemClock.elapsedRealtime() - handoffStartMs);
+		handoffStartMs = C.TIME_UNSET;
+	}
+
+	/** Returns the language of the selected track of {@code trackType}, or null. */
+	@Nullable
+	private static String getSelectedLanguage(Tracks tracks, @C.TrackType int trackType) {
+		for (Tracks.Group group : tracks.getGroups()) {
+			if (group.getType() != trackType) {
+				continue;
+			}
+			for (int i = 0; i < group.length; i++) {
+				if (group.isTrackSelected(i)) {
+					return group.getTrackFormat(i).language;
+				}
+			}
+		}
+		return null;
+	}
+
+	/** Prefers the audio and text languages that were selected on Cast. */
+	private void applyHandoffLanguages() {
+		TrackSelectionParameters.Builder builder = localPlayer.getTrackSelectionParameters().buildUpon();
+		if (handoffAudioLanguage != null) {
+			builder.setPreferredAudioLanguages(handoffAudioLanguage, StreamingMedia.DEFAULT_LANGUAGE);
+		}
+		if (handoffTextLanguage != null) {
+			builder.setPreferredTextLanguages(handoffTextLanguage, StreamingMedia.DEFAULT_LANGUAGE);
+		}
+		localPlayer.setTrackSelectionParameters(builder.build());
+	}
+
+	/**
+	 * Activates the receiver tracks in the audio and text languages that were selected locally.
+	 * {@link CastPlayer} takes no track selection parameters, so this goes to the remote client.
+	 */
+	private void applyHandoffLanguagesOnCast() {
+		CastSession session = castContext.getSessionManager().getCurrentCastSession();
+		RemoteMediaClient client = session != null ? session.getRemoteMediaClient() : null;
+		MediaInfo mediaInfo = client != null ? client.getMediaInfo() : null;
+		if (mediaInfo == null || mediaInfo.getMediaTracks() == null || (handoffAudioLanguage == null && handoffTextLanguage == null)) {
+			return;
+		}
+
+		List<Long> trackIds = new ArrayList<>();
+		boolean audioFound = false;
+		boolean textFound = false;
+		for (MediaTrack track : mediaInfo.getMediaTracks()) {
+			if (!audioFound && track.getType() == MediaTrack.TYPE_AUDIO && isLanguage(track, handoffAudioLanguage)) {
+				trackIds.add(track.getId());
+				audioFound = true;
+			} else if (!textFound && track.getType() == MediaTrack.TYPE_TEXT && isLanguage(track, handoffTextLanguage)) {
+				trackIds.add(track.getId());
+				textFound = true;
+			}
+		}
+		if (trackIds.isEmpty()) {
+			return;
+		}
+
+		long[] activeTrackIds = new long[trackIds.size()];
+		for (int i = 0; i < activeTrackIds.length; i++) {
+			activeTrackIds[i] = trackIds.get(i);
+		}
+		client.setActiveMediaTracks(activeTrackIds);
+	}
+
+	private static boolean isLanguage(MediaTrack track, @Nullable String language) {
+		return language != null && track.getLanguage() != null
+				&& track.getLanguage().split("-")[0].equalsIgnoreCase(language.split("-")[0]);
+	}
 }
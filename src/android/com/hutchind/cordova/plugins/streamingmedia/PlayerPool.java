@@ -0,0 +1,243 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.media3.common.AudioAttributes;
+import androidx.media3.common.C;
+import androidx.media3.common.PlaybackParameters;
+import androidx.media3.common.Player;
+import androidx.media3.common.TrackSelectionParameters;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DefaultDataSource;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.source.DefaultMediaSourceFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Process-scoped pool of local {@link ExoPlayer} instances, so back-to-back plays reuse an idle
+ * player instead of paying for renderer, codec and thread setup again.
+ *
+ * <p>Idle players are released after {@code playerIdleTimeoutMs}, and all of them are dropped
+ * when the system reports memory pressure. All methods must be called on the main thread.
+ */
+@UnstableApi
+class PlayerPool {
+	private static final String TAG = "PlayerPool";
+
+	private static final int DEFAULT_MAX_IDLE = 1;
+	private static final int DEFAULT_IDLE_TIMEOUT_MS = 30 * 1000;
+
+	private static final List<Entry> idle = new ArrayList<>();
+	private static final Map<ExoPlayer, Entry> owned = new WeakHashMap<>();
+	private static final Handler handler = new Handler(Looper.getMainLooper());
+
+	private static int maxIdle = DEFAULT_MAX_IDLE;
+	private static int idleTimeoutMs = DEFAULT_IDLE_TIMEOUT_MS;
+	private static Context appContext;
+
+	private PlayerPool() {}
+
+	/**
+	 * Applies the {@code playerPoolSize} and {@code playerIdleTimeoutMs} play options, if present.
+	 * A pool size of 0 disables pooling.
+	 */
+	public static void configure(Bundle options) {
+		if (options == null) {
+			return;
+		}
+
+		if (options.containsKey("playerPoolSize")) {
+			maxIdle = Math.max(0, options.getInt("playerPoolSize", DEFAULT_MAX_IDLE));
+		}
+		if (options.containsKey("playerIdleTimeoutMs")) {
+			idleTimeoutMs = Math.max(0, options.getInt("playerIdleTimeoutMs", DEFAULT_IDLE_TIMEOUT_MS));
+		}
+
+		while (idle.size() > maxIdle) {
+			idle.remove(0).release();
+		}
+	}
+
+	/**
+	 * Borrows an idle player built for the same cache, buffering, network and retry options, or
+	 * builds a new one. Once anything has been downloaded, new players also read from the download
+	 * cache.
+	 *
+	 * @param context A {@link Context}.
+	 * @param options The play options.
+	 */
+	public static ExoPlayer acquire(Context context, Bundle options) {
+		registerCallbacks(context);
+
+		MediaCache mediaCache = MediaCache.fromOptions(context, options);
+		BufferPolicy bufferPolicy = BufferPolicy.fromOptions(options);
+		boolean offline = DownloadTracker.hasDownloads(context);
+		NetworkStack.Config network = NetworkStack.Config.fromOptions(options);
+		RetryPolicy retryPolicy = RetryPolicy.fromOptions(options);
+
+		Iterator<Entry> it = idle.iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (entry.matches(mediaCache, bufferPolicy, offline, network, retryPolicy)) {
+				it.remove();
+				handler.removeCallbacks(entry.expiry);
+				Log.v(TAG, "Reusing pooled player");
+				return entry.player;
+			}
+		}
+
+		StreamingLoadControl loadControl = new StreamingLoadControl(bufferPolicy);
+		ExoPlayer.Builder builder = new ExoPlayer.Builder(context, new SubtitleTracks.RenderersFactory(context))
+				.setVideoScalingMode(C.VIDEO_SCALING_MODE_SCALE_TO_FIT_WITH_CROPPING)
+				.setLoadControl(loadControl)
+				.setBandwidthMeter(BandwidthStore.getMeter(context));
+		DefaultDataSource.Factory upstreamFactory = NetworkStack.buildDataSourceFactory(context, network);
+		DataSource.Factory dataSourceFactory = mediaCache != null ? mediaCache.buildDataSourceFactory(upstreamFactory) : upstreamFactory;
+		// Unparsed subtitles let each side-loaded track load only once it is selected.
+		builder.setMediaSourceFactory(new DefaultMediaSourceFactory(DownloadTracker.wrapDataSourceFactory(context, dataSourceFactory))
+				.setLoadErrorHandlingPolicy(retryPolicy)
+				.experimentalParseSubtitlesDuringExtraction(false));
+
+		ExoPlayer player = builder.build();
+		owned.put(player, new Entry(player, loadControl, mediaCache, bufferPolicy, offline, network, retryPolicy));
+		return player;
+	}
+
+	/**
+	 * Returns whether a player obtained from {@link #acquire} was built for the same cache,
+	 * buffering, network and retry options as {@code options}, as {@link #acquire} would require.
+	 */
+	public static boolean isCompatible(Context context, ExoPlayer player, Bundle options) {
+		Entry entry = owned.get(player);
+		return entry != null && entry.matches(MediaCache.fromOptions(context, options), BufferPolicy.fromOptions(options),
+				DownloadTracker.hasDownloads(context), NetworkStack.Config.fromOptions(options), RetryPolicy.fromOptions(options));
+	}
+
+	/** Returns the {@link StreamingLoadControl} of a player obtained from {@link #acquire}. */
+	public static StreamingLoadControl getLoadControl(ExoPlayer player) {
+		Entry entry = owned.get(player);
+		return entry != null ? entry.loadControl : null;
+	}
+
+	/**
+	 * Gives a borrowed player back. It is reset and kept for reuse if the pool has room, and
+	 * released otherwise. Callers must have removed their own listeners and detached views.
+	 */
+	public static void release(ExoPlayer player) {
+		BandwidthStore.save(appContext);
+
+		Entry entry = owned.get(player);
+		if (entry == null || maxIdle == 0 || idle.size() >= maxIdle) {
+			player.release();
+			owned.remove(player);
+			return;
+		}
+
+		entry.reset();
+		idle.add(entry);
+		handler.postDelayed(entry.expiry, idleTimeoutMs);
+	}
+
+	/** Releases every idle player. */
+	public static void trim() {
+		if (!idle.isEmpty()) {
+			Log.v(TAG, "Releasing " + idle.size() + " idle player(s)");
+		}
+		while (!idle.isEmpty()) {
+			idle.remove(0).release();
+		}
+	}
+
+	private static void registerCallbacks(Context context) {
+		if (appContext != null) {
+			return;
+		}
+
+		appContext = context.getApplicationContext();
+		appContext.registerComponentCallbacks(new ComponentCallbacks2() {
+			@Override
+			public void onTrimMemory(int level) {
+				// Keep the warm player while the app is merely hidden, drop it once memory gets tight.
+				if (level != TRIM_MEMORY_UI_HIDDEN && level >= TRIM_MEMORY_RUNNING_LOW) {
+					handler.post(PlayerPool::trim);
+				}
+			}
+
+			@Override
+			public void onConfigurationChanged(Configuration newConfig) {}
+
+			@Override
+			public void onLowMemory() {
+				handler.post(PlayerPool::trim);
+			}
+		});
+	}
+
+	private static class Entry {
+		private final ExoPlayer player;
+		private final StreamingLoadControl loadControl;
+		private final MediaCache mediaCache;
+		private final BufferPolicy bufferPolicy;
+		private final boolean offline;
+		private final NetworkStack.Config network;
+		private final RetryPolicy retryPolicy;
+		private final TrackSelectionParameters initialParameters;
+		private final Runnable expiry;
+
+		Entry(ExoPlayer player, StreamingLoadControl loadControl, MediaCache mediaCache, BufferPolicy bufferPolicy, boolean offline, NetworkStack.Config network, RetryPolicy retryPolicy) {
+			this.player = player;
+			this.loadControl = loadControl;
+			this.mediaCache = mediaCache;
+			this.bufferPolicy = bufferPolicy;
+			this.offline = offline;
+			this.network = network;
+			this.retryPolicy = retryPolicy;
+			this.initialParameters = player.getTrackSelectionParameters();
+			this.expiry = () -> {
+				if (idle.remove(this)) {
+					Log.v(TAG, "Idle player timed out");
+					release();
+				}
+			};
+		}
+
+		boolean matches(MediaCache mediaCache, BufferPolicy bufferPolicy, boolean offline, NetworkStack.Config network, RetryPolicy retryPolicy) {
+			return this.mediaCache == mediaCache && this.bufferPolicy.equals(bufferPolicy) && this.offline == offline
+					&& this.network.equals(network) && this.retryPolicy.equals(retryPolicy);
+		}
+
+		void reset() {
+			player.stop();
+			player.clearMediaItems();
+			player.setPlayWhenReady(false);
+			player.setRepeatMode(Player.REPEAT_MODE_OFF);
+			player.setShuffleModeEnabled(false);
+			player.setPlaybackParameters(PlaybackParameters.DEFAULT);
+			player.setVolume(1f);
+			player.setAudioAttributes(AudioAttributes.DEFAULT, false);
+			player.setHandleAudioBecomingNoisy(false);
+			player.setWakeMode(C.WAKE_MODE_NONE);
+			player.setTrackSelectionParameters(initialParameters);
+			player.setPreloadConfiguration(ExoPlayer.PreloadConfiguration.DEFAULT);
+			loadControl.clearPreloadLimit();
+			loadControl.setBufferCapMs(C.TIME_UNSET);
+			loadControl.setMemoryCapMs(C.TIME_UNSET);
+		}
+
+		void release() {
+			handler.removeCallbacks(expiry);
+			owned.remove(player);
+			player.release();
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.os.SystemClock;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DecoderReuseEvaluation;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.source.LoadEventInfo;
+import androidx.media3.exoplayer.source.MediaLoadData;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Collects quality-of-experience metrics for one playback session: startup phases, stalls,
+ * bitrate switches, dropped frames, decoder setup, bytes loaded and Cast handoffs.
+ *
+ * <p>Times are measured from the moment the tracker is created. Phases that already happened
+ * before that, e.g. the manifest load of a preloaded player, are reported as -1.
+ */
+@UnstableApi
+class QoeTracker implements AnalyticsListener {
+	/** Receives a fresh snapshot whenever a notable event changes the metrics. */
+	public interface Listener {
+		void onQoeUpdate(JSONObject qoe);
+	}
+
+	private static final int MAX_TIMELINE_ENTRIES = 50;
+
+	private final long sessionStartMs = SystemClock.elapsedRealtime();
+	private final Player player;
+	private final Listener listener;
+
+	private long manifestLoadedMs = C.TIME_UNSET;
+	private long firstSegmentLoadedMs = C.TIME_UNSET;
+	private long firstReadyMs = C.TIME_UNSET;
+	private long firstFrameMs = C.TIME_UNSET;
+
+	private int rebufferCount;
+	private long rebufferDurationMs;
+	private long rebufferStartMs = C.TIME_UNSET;
+	private boolean isSeeking;
+
+	private final JSONArray bitrateTimeline = new JSONArray();
+	private int bitrateSwitchCount;
+	private int lastBitrate = Format.NO_VALUE;
+
+	private long droppedFrames;
+	private long videoDecoderInitMs = C.TIME_UNSET;
+	private long audioDecoderInitMs = C.TIME_UNSET;
+	private long bytesLoaded;
+	private final JSONArray handoffs = new JSONArray();
+
+	/**
+	 * @param player The tracked player, queried for live latency.
+	 * @param listener Receives live updates, or null to only collect a final snapshot.
+	 */
+	public QoeTracker(Player player, @Nullable Listener listener) {
+		this.player = player;
+		this.listener = listener;
+	}
+
+	/** Returns the metrics collected so far. */
+	public JSONObject toJson() {
+		JSONObject qoe = new JSONObject();
+		try {
+			JSONObject joinPhases = new JSONObject();
+			joinPhases.put("manifestMs", sinceStart(manifestLoadedMs));
+			joinPhases.put("firstSegmentMs", sinceStart(firstSegmentLoadedMs));
+			joinPhases.put("readyMs", sinceStart(firstReadyMs));
+			joinPhases.put("firstFrameMs", sinceStart(firstFrameMs));
+
+			long stallMs = rebufferDurationMs;
+			if (rebufferStartMs != C.TIME_UNSET) {
+				stallMs += SystemClock.elapsedRealtime() - rebufferStartMs;
+			}
+
+			qoe.put("timeToFirstFrameMs", sinceStart(firstFrameMs));
+			qoe.put("joinPhases", joinPhases);
+			qoe.put("rebufferCount", rebufferCount);
+			qoe.put("rebufferDurationMs", stallMs);
+			qoe.put("bitrateSwitchCount", bitrateSwitchCount);
+			qoe.put("bitrateTimeline", bitrateTimeline);
+			qoe.put("droppedFrames", droppedFrames);
+			qoe.put("videoDecoderInitMs", videoDecoderInitMs != C.TIME_UNSET ? videoDecoderInitMs : -1);
+			qoe.put("audioDecoderInitMs", audioDecoderInitMs != C.TIME_UNSET ? audioDecoderInitMs : -1);
+			qoe.put("bytesLoaded", bytesLoaded);
+			qoe.put("handoffs", handoffs);
+			qoe.put("sessionDurationMs", SystemClock.elapsedRealtime() - sessionStartMs);
+			if (player.isCurrentMediaItemLive()) {
+				qoe.put("live", liveToJson());
+			}
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+		return qoe;
+	}
+
+	/**
+	 * Records a switch between local and Cast playback.
+	 *
+	 * @param target {@code "cast"} or {@code "local"}.
+	 * @param warm Whether the local player resumed from its retained buffer instead of a new prepare.
+	 * @param latencyMs Time from the switch until the new player was ready.
+	 */
+	public void onHandoff(String target, boolean warm, long latencyMs) {
+		if (handoffs.length() < MAX_TIMELINE_ENTRIES) {
+			JSONObject entry = new JSONObject();
+			try {
+				entry.put("atMs", SystemClock.elapsedRealtime() - sessionStartMs);
+				entry.put("to", target);
+				entry.put("warm", warm);
+				entry.put("latencyMs", latencyMs);
+			} catch (JSONException e) {
+				e.printStackTrace();
+			}
+			handoffs.put(entry);
+		}
+		notifyListener();
+	}
+
+	// AnalyticsListener implementation.
+	@Override
+	public void onPlaybackStateChanged(EventTime eventTime, @Player.State int state) {
+		long now = SystemClock.elapsedRealtime();
+		if (state == Player.STATE_READY) {
+			if (firstReadyMs == C.TIME_UNSET) {
+				firstReadyMs = now;
+			}
+			if (rebufferStartMs != C.TIME_UNSET) {
+				rebufferDurationMs += now - rebufferStartMs;
+				rebufferStartMs = C.TIME_UNSET;
+				notifyListener();
+			}
+			isSeeking = false;
+		} else if (state == Player.STATE_BUFFERING) {
+			// Only stalls after startup count, and buffering caused by a seek is expected.
+			if (firstReadyMs != C.TIME_UNSET && !isSeeking && rebufferStartMs == C.TIME_UNSET) {
+				rebufferCount++;
+				rebufferStartMs = now;
+				notifyListener();
+			}
+		} else {
+			if (rebufferStartMs != C.TIME_UNSET) {
+				rebufferDurationMs += now - rebufferStartMs;
+				rebufferStartMs = C.TIME_UNSET;
+			}
+			isSeeking = false;
+		}
+	}
+
+	@Override
+	public void onPositionDiscontinuity(EventTime eventTime, Player.PositionInfo oldPosition, Player.PositionInfo newPosition, @Player.DiscontinuityReason int reason) {
+		if (reason == Player.DISCONTINUITY_REASON_SEEK) {
+			// A seek within the buffer can stay ready, and would then leave the flag set until the next stall.
+			isSeeking = player.getPlaybackState() != Player.STATE_READY;
+		}
+	}
+
+	@Override
+	public void onLoadCompleted(EventTime eventTime, LoadEventInfo loadEventInfo, MediaLoadData mediaLoadData) {
+		long now = SystemClock.elapsedRealtime();
+		bytesLoaded += loadEventInfo.bytesLoaded;
+		if (mediaLoadData.dataType == C.DATA_TYPE_MANIFEST && manifestLoadedMs == C.TIME_UNSET) {
+			manifestLoadedMs = now;
+		} else if (mediaLoadData.dataType == C.DATA_TYPE_MEDIA && firstSegmentLoadedMs == C.TIME_UNSET) {
+			firstSegmentLoadedMs = now;
+		}
+	}
+
+	@Override
+	public void onRenderedFirstFrame(EventTime eventTime, Object output, long renderTimeMs) {
+		if (firstFrameMs == C.TIME_UNSET) {
+			firstFrameMs = SystemClock.elapsedRealtime();
+			notifyListener();
+		}
+	}
+
+	@Override
+	public void onVideoInputFormatChanged(EventTime eventTime, Format format, @Nullable DecoderReuseEvaluation decoderReuseEvaluation) {
+		if (format.bitrate == lastBitrate) {
+			return;
+		}
+
+		if (lastBitrate != Format.NO_VALUE) {
+			bitrateSwitchCount++;
+		}
+		lastBitrate = format.bitrate;
+
+		if (bitrateTimeline.length() < MAX_TIMELINE_ENTRIES) {
+			JSONObject entry = new JSONObject();
+			try {
+				entry.put("atMs", SystemClock.elapsedRealtime() - sessionStartMs);
+				entry.put("positionMs", eventTime.currentPlaybackPositionMs);
+				entry.put("bitrate", format.bitrate);
+				entry.put("width", format.width);
+				entry.put("height", format.height);
+			} catch (JSONException e) {
+				e.printStackTrace();
+			}
+			bitrateTimeline.put(entry);
+		}
+		notifyListener();
+	}
+
+	@Override
+	public void onDroppedVideoFrames(EventTime eventTime, int droppedFrames, long elapsedMs) {
+		this.droppedFrames += droppedFrames;
+	}
+
+	@Override
+	public void onVideoDecoderInitialized(EventTime eventTime, String decoderName, long initializedTimestampMs, long initializationDurationMs) {
+		videoDecoderInitMs = initializationDurationMs;
+	}
+
+	@Override
+	public void onAudioDecoderInitialized(EventTime eventTime, String decoderName, long initializedTimestampMs, long initializationDurationMs) {
+		audioDecoderInitMs = initializationDurationMs;
+	}
+
+	// Internal methods.
+	private JSONObject liveToJson() throws JSONException {
+		JSONObject live = new JSONObject();
+		long liveOffsetMs = player.getCurrentLiveOffset();
+		long durationMs = player.getDuration();
+
+		// Latency is wall clock behind the encoder, edge offset is position behind the newest segment.
+		live.put("latencyMs", liveOffsetMs != C.TIME_UNSET ? liveOffsetMs : -1);
+		live.put("edgeOffsetMs", durationMs != C.TIME_UNSET ? durationMs - player.getCurrentPosition() : -1);
+		live.put("playbackSpeed", player.getPlaybackParameters().speed);
+		return live;
+	}
+
+	private long sinceStart(long timestampMs) {
+		return timestampMs != C.TIME_UNSET ? timestampMs - sessionStartMs : -1;
+	}
+
+	private void notifyListener() {
+		if (listener != null) {
+			listener.onQoeUpdate(toJson());
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Persists resume positions per media URL, so a session left by back-press, process death or a
+ * crash can continue where it stopped.
+ *
+ * <p>Positions are collected in memory and written in batches on a background thread. A position
+ * of 0 marks the media as finished and removes its entry.
+ */
+@UnstableApi
+class ResumeStore {
+	private static final String PREFS_NAME = "streaming_media_resume";
+	private static final int WRITE_DELAY_MS = 2000;
+	private static final int CHECKPOINT_INTERVAL_MS = 5000;
+
+	private static final Map<String, Long> pending = new HashMap<>();
+	private static final ExecutorService writer = Executors.newSingleThreadExecutor();
+	private static final Handler handler = new Handler(Looper.getMainLooper());
+	private static final Runnable flushTask = ResumeStore::flush;
+	private static Context appContext;
+	private static boolean isFlushScheduled;
+
+	private ResumeStore() {}
+
+	/** Returns the stored position of {@code url} in milliseconds, or {@link C#TIME_UNSET}. */
+	public static long getPositionMs(Context context, String url) {
+		JSONObject entry = getEntry(context, url);
+		return entry != null ? entry.optLong("positionMs", C.TIME_UNSET) : C.TIME_UNSET;
+	}
+
+	/** Returns {@code {url, position, updatedAt}} with the position in seconds, 0 if none is stored. */
+	public static JSONObject toJson(Context context, String url) throws JSONException {
+		JSONObject entry = getEntry(context, url);
+		JSONObject json = new JSONObject();
+		json.put("url", url);
+		json.put("position", entry != null ? entry.optLong("positionMs") / 1000.0 : 0);
+		json.put("updatedAt", entry != null ? entry.optLong("updatedAt") : 0);
+		return json;
+	}
+
+	/**
+	 * Returns the URL a position is stored under, or null. Items seen through a session controller
+	 * only carry their URL as media id, and failed-over items keep their original URL there.
+	 */
+	public static String getKey(MediaItem mediaItem) {
+		if (!mediaItem.mediaId.isEmpty()) {
+			return mediaItem.mediaId;
+		}
+		return mediaItem.localConfiguration != null ? mediaItem.localConfiguration.uri.toString() : null;
+	}
+
+	/** Queues {@code positionMs} for {@code url}; 0 removes the entry. */
+	public static void save(Context context, String url, long positionMs) {
+		synchronized (pending) {
+			appContext = context.getApplicationContext();
+			pending.put(url, positionMs);
+			if (!isFlushScheduled) {
+				isFlushScheduled = true;
+				handler.postDelayed(flushTask, WRITE_DELAY_MS);
+			}
+		}
+	}
+
+	/** Removes the stored position of {@code url}. */
+	public static void clear(Context context, String url) {
+		save(context, url, 0);
+		flush();
+	}
+
+	/** Writes all queued positions now, in one commit on the writer thread. */
+	public static void flush() {
+		final Map<String, Long> batch;
+		final Context context;
+		synchronized (pending) {
+			handler.removeCallbacks(flushTask);
+			isFlushScheduled = false;
+			if (pending.isEmpty()) {
+				return;
+			}
+			batch = new HashMap<>(pending);
+			context = appContext;
+			pending.clear();
+		}
+
+		writer.execute(() -> {
+			SharedPreferences.Editor editor = getPrefs(context).edit();
+			long now = System.currentTimeMillis();
+			for (Map.Entry<String, Long> entry : batch.entrySet()) {
+				if (entry.getValue() > 0) {
+					editor.putString(entry.getKey(), newEntry(entry.getValue(), now).toString());
+				} else {
+					editor.remove(entry.getKey());
+				}
+			}
+			editor.commit();
+		});
+	}
+
+	private static JSONObject getEntry(Context context, String url) {
+		synchronized (pending) {
+			Long queued = pending.get(url);
+			if (queued != null) {
+				return queued > 0 ? newEntry(queued, System.currentTimeMillis()) : null;
+			}
+		}
+
+		String stored = getPrefs(context).getString(url, null);
+		try {
+			return stored != null ? new JSONObject(stored) : null;
+		} catch (JSONException e) {
+			return null;
+		}
+	}
+
+	private static JSONObject newEntry(long positionMs, long updatedAt) {
+		JSONObject entry = new JSONObject();
+		try {
+			entry.put("positionMs", positionMs);
+			entry.put("updatedAt", updatedAt);
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+		return entry;
+	}
+
+	private static SharedPreferences getPrefs(Context context) {
+		return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+	}
+
+	/**
+	 * Saves the position of the current item of a player at a fixed interval while it plays. Live
+	 * items are skipped. Must be used on the main thread.
+	 */
+	static class Checkpoint implements Runnable {
+		private final Context context;
+		private final Player player;
+
+		Checkpoint(Context context, Player player) {
+			this.context = context.getApplicationContext();
+			this.player = player;
+		}
+
+		void start() {
+			handler.postDelayed(this, CHECKPOINT_INTERVAL_MS);
+		}
+
+		void stop() {
+			handler.removeCallbacks(this);
+		}
+
+		/** Saves the current position immediately, e.g. when the activity goes to the background. */
+		void save() {
+			MediaItem mediaItem = player.getCurrentMediaItem();
+			String url = mediaItem != null ? getKey(mediaItem) : null;
+			if (url == null || player.isCurrentMediaItemLive() || player.getPlaybackState() == Player.STATE_IDLE) {
+				return;
+			}
+
+			ResumeStore.save(context, url, PlayerManager.getFinishPosition(player.getCurrentPosition(), player.getDuration()));
+		}
+
+		@Override
+		public void run() {
+			if (player.isPlaying()) {
+				save();
+			}
+			handler.postDelayed(this, CHECKPOINT_INTERVAL_MS);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.os.Bundle;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.upstream.DefaultLoadErrorHandlingPolicy;
+import java.util.Random;
+
+/**
+ * Retry schedule for manifest, playlist and segment loads, from the {@code maxRetries},
+ * {@code retryBaseDelayMs} and {@code retryMaxDelayMs} play options.
+ *
+ * <p>The n-th retry of a load waits {@code retryBaseDelayMs * 2^(n-1)}, capped at
+ * {@code retryMaxDelayMs}, of which a random half is dropped so players that failed together do
+ * not retry together. Errors a retry cannot fix, e.g. unparseable media, are not retried, and
+ * excluding a failing variant or location is left to {@link DefaultLoadErrorHandlingPolicy}.
+ */
+@UnstableApi
+final class RetryPolicy extends DefaultLoadErrorHandlingPolicy {
+	public static final RetryPolicy DEFAULT = new RetryPolicy(3, 1000, 16000);
+
+	private static final int MAX_RETRIES_LIMIT = 20;
+	private static final Random random = new Random();
+
+	public final int maxRetries;
+	public final int baseDelayMs;
+	public final int maxDelayMs;
+
+	RetryPolicy(int maxRetries, int baseDelayMs, int maxDelayMs) {
+		super(maxRetries);
+		this.maxRetries = maxRetries;
+		this.baseDelayMs = baseDelayMs;
+		this.maxDelayMs = maxDelayMs;
+	}
+
+	/**
+	 * Reads the retry options.
+	 *
+	 * @param options The play options.
+	 * @throws IllegalArgumentException If the values are out of range.
+	 */
+	public static RetryPolicy fromOptions(Bundle options) {
+		if (options == null) {
+			return DEFAULT;
+		}
+
+		RetryPolicy policy = new RetryPolicy(
+				options.getInt("maxRetries", DEFAULT.maxRetries),
+				options.getInt("retryBaseDelayMs", DEFAULT.baseDelayMs),
+				options.getInt("retryMaxDelayMs", DEFAULT.maxDelayMs));
+		policy.validate();
+		return policy;
+	}
+
+	@Override
+	public long getRetryDelayMsFor(LoadErrorInfo loadErrorInfo) {
+		if (loadErrorInfo.errorCount > maxRetries || super.getRetryDelayMsFor(loadErrorInfo) == C.TIME_UNSET) {
+			return C.TIME_UNSET;
+		}
+
+		int exponent = Math.min(loadErrorInfo.errorCount - 1, MAX_RETRIES_LIMIT);
+		long delayMs = Math.min((long) baseDelayMs << exponent, maxDelayMs);
+		return delayMs - (long) (random.nextDouble() * (delayMs / 2));
+	}
+
+	@Override
+	public int getMinimumLoadableRetryCount(int dataType) {
+		return maxRetries;
+	}
+
+	private void validate() {
+		if (maxRetries < 0 || maxRetries > MAX_RETRIES_LIMIT) {
+			throw new IllegalArgumentException("maxRetries must be between 0 and " + MAX_RETRIES_LIMIT);
+		}
+		if (baseDelayMs <= 0) {
+			throw new IllegalArgumentException("retryBaseDelayMs must be positive");
+		}
+		if (maxDelayMs < baseDelayMs) {
+			throw new IllegalArgumentException("retryMaxDelayMs must be at least retryBaseDelayMs");
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof RetryPolicy)) {
+			return false;
+		}
+		RetryPolicy other = (RetryPolicy) o;
+		return maxRetries == other.maxRetries
+				&& baseDelayMs == other.baseDelayMs
+				&& maxDelayMs == other.maxDelayMs;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = maxRetries;
+		result = 31 * result + baseDelayMs;
+		result = 31 * result + maxDelayMs;
+		return result;
+	}
+}
@@ -0,0 +1,379 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.ui.PlayerView;
+import androidx.media3.ui.TimeBar;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import okhttp3.Response;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Shows a thumbnail above the time bar of a {@link PlayerView} while the user scrubs, so one seek
+ * lands where intended.
+ *
+ * <p>Thumbnails come from the {@code thumbnails} play option: either the URL of a WebVTT thumbnail
+ * track whose cues point at images or {@code #xywh} regions of sprite sheets, or a sprite
+ * description {@code {url, intervalMs, columns, rows, width, height}} where {@code url} may
+ * contain {@code {index}} for consecutive sheets. Sheets are fetched and decoded on a background
+ * thread and kept in {@link ImageCache}. All other methods must be called on the main thread.
+ */
+@UnstableApi
+class SeekPreview implements TimeBar.OnScrubListener {
+	private static final String TAG = "SeekPreview";
+	private static final int PREVIEW_WIDTH_DP = 160;
+	private static final int PREVIEW_MARGIN_DP = 8;
+
+	private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	/** One thumbnail: a region of an image, shown for positions in {@code [startMs, endMs)}. */
+	private static final class Tile {
+		final long startMs;
+		final long endMs;
+		final String imageUrl;
+		final int x;
+		final int y;
+		final int width;
+		final int height;
+
+		Tile(long startMs, long endMs, String imageUrl, int x, int y, int width, int height) {
+			this.startMs = startMs;
+			this.endMs = endMs;
+			this.imageUrl = imageUrl;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	private final Context context;
+	private final PlayerView playerView;
+	private final TimeBar timeBar;
+	private final NetworkStack.Config network;
+	private final ImageView previewView;
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+	private final Set<String> loadingSheets = new HashSet<>();
+	// The inSampleSize each loaded sheet was decoded with, to map tile coordinates onto it.
+	private final Map<String, Integer> sheetSampleSizes = new HashMap<>();
+	private final int previewWidthPx;
+
+	private List<Tile> tiles = new ArrayList<>();
+	private boolean isScrubbing;
+	private long scrubPositionMs;
+	private volatile boolean released;
+
+	/**
+	 * Adds seek previews to {@code playerView} if the {@code thumbnails} option is set.
+	 *
+	 * @return The preview, to be {@link #release() released} with the view, or null.
+	 */
+	@Nullable
+	public static SeekPreview attach(PlayerView playerView, Bundle options) {
+		String thumbnails = options != null ? options.getString("thumbnails") : null;
+		TimeBar timeBar = playerView.findViewById(androidx.media3.ui.R.id.exo_progress);
+		if (thumbnails == null || timeBar == null || playerView.getOverlayFrameLayout() == null) {
+			return null;
+		}
+		return new SeekPreview(playerView, timeBar, thumbnails, NetworkStack.Config.fromOptions(options));
+	}
+
+	private SeekPreview(PlayerView playerView, TimeBar timeBar, String thumbnails, NetworkStack.Config network) {
+		this.context = playerView.getContext().getApplicationContext();
+		this.playerView = playerView;
+		this.timeBar = timeBar;
+		this.network = network;
+
+		float density = context.getResources().getDisplayMetrics().density;
+		previewWidthPx = Math.round(PREVIEW_WIDTH_DP * density);
+		previewView = new ImageView(playerView.getContext());
+		previewView.setScaleType(ImageView.ScaleType.FIT_CENTER);
+		previewView.setAdjustViewBounds(true);
+		previewView.setVisibility(View.GONE);
+		playerView.getOverlayFrameLayout().addView(previewView, new FrameLayout.LayoutParams(
+				previewWidthPx, FrameLayout.LayoutParams.WRAP_CONTENT));
+		timeBar.addListener(this);
+
+		executor.execute(() -> {
+			List<Tile> parsed = loadTiles(thumbnails, network);
+			mainHandler.post(() -> {
+				tiles = parsed;
+				if (!tiles.isEmpty()) {
+					// The first sheet is the most likely one needed, get it before the user scrubs.
+					loadSheet(tiles.get(0));
+				}
+			});
+		});
+	}
+
+	public void release() {
+		released = true;
+		timeBar.removeListener(this);
+		mainHandler.removeCallbacksAndMessages(null);
+		playerView.getOverlayFrameLayout().removeView(previewView);
+	}
+
+	// TimeBar.OnScrubListener implementation.
+	@Override
+	public void onScrubStart(TimeBar timeBar, long position) {
+		isScrubbing = true;
+		show(position);
+	}
+
+	@Override
+	public void onScrubMove(TimeBar timeBar, long position) {
+		show(position);
+	}
+
+	@Override
+	public void onScrubStop(TimeBar timeBar, long position, boolean canceled) {
+		isScrubbing = false;
+		previewView.setVisibility(View.GONE);
+	}
+
+	// Internal methods.
+	private void show(long positionMs) {
+		scrubPositionMs = positionMs;
+		Tile tile = findTile(positionMs);
+		if (tile == null) {
+			previewView.setVisibility(View.GONE);
+			return;
+		}
+
+		Integer sampleSize = sheetSampleSizes.get(tile.imageUrl);
+		Bitmap sheet = sampleSize != null ? ImageCache.getInstance(context).getBitmap(sheetKey(tile.imageUrl)) : null;
+		if (sheet == null) {
+			loadSheet(tile);
+			return;
+		}
+
+		Bitmap thumbnail = crop(sheet, tile, sampleSize);
+		if (thumbnail == null) {
+			previewView.setVisibility(View.GONE);
+			return;
+		}
+		previewView.setImageBitmap(thumbnail);
+		previewView.setVisibility(View.VISIBLE);
+		position(positionMs);
+	}
+
+	/** Centers the preview above the scrub position, kept inside the player view. */
+	private void position(long positionMs) {
+		Player player = playerView.getPlayer();
+		long durationMs = player != null ? player.getDuration() : C.TIME_UNSET;
+		View bar = (View) timeBar;
+		View overlay = playerView.getOverlayFrameLayout();
+		if (durationMs == C.TIME_UNSET || durationMs <= 0 || bar.getWidth() == 0) {
+			return;
+		}
+
+		int[] barLocation = new int[2];
+		int[] overlayLocation = new int[2];
+		bar.getLocationInWindow(barLocation);
+		overlay.getLocationInWindow(overlayLocation);
+
+		float fraction = Math.min(1f, Math.max(0f, positionMs / (float) durationMs));
+		int previewWidth = previewView.getLayoutParams().width;
+		int previewHeight = previewView.getHeight() > 0 ? previewView.getHeight() : previewWidth * 9 / 16;
+		float centerX = barLocation[0] - overlayLocation[0] + fraction * bar.getWidth();
+		float left = Math.min(Math.max(centerX - previewWidth / 2f, 0), overlay.getWidth() - previewWidth);
+		float margin = PREVIEW_MARGIN_DP * context.getResources().getDisplayMetrics().density;
+
+		previewView.setTranslationX(left);
+		previewView.setTranslationY(barLocation[1] - overlayLocation[1] - previewHeight - margin);
+	}
+
+	@Nullable
+	private Tile findTile(long positionMs) {
+		int low = 0;
+		int high = tiles.size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			Tile tile = tiles.get(mid);
+			if (positionMs < tile.startMs) {
+				high = mid - 1;
+			} else if (positionMs >= tile.endMs) {
+				low = mid + 1;
+			} else {
+				return tile;
+			}
+		}
+		return null;
+	}
+
+	/** Loads the sheet of {@code tile}, decoded so that its tiles are about the size of the preview. */
+	private void loadSheet(Tile tile) {
+		String imageUrl = tile.imageUrl;
+		if (!loadingSheets.add(imageUrl)) {
+			return;
+		}
+
+		executor.execute(() -> {
+			BitmapFactory.Options options = new BitmapFactory.Options();
+			Bitmap sheet = null;
+			try {
+				sheet = decodeSheet(tile, options);
+			} catch (IOException e) {
+				Log.e(TAG, "Could not load " + imageUrl + ": " + e);
+			}
+
+			final Bitmap result = sheet;
+			final int sampleSize = Math.max(1, options.inSampleSize);
+			mainHandler.post(() -> {
+				loadingSheets.remove(imageUrl);
+				if (result == null || released) {
+					return;
+				}
+				sheetSampleSizes.put(imageUrl, sampleSize);
+				ImageCache.getInstance(context).putBitmap(sheetKey(imageUrl), result);
+				if (isScrubbing) {
+					show(scrubPositionMs);
+				}
+			});
+		});
+	}
+
+	private Bitmap decodeSheet(Tile tile, BitmapFactory.Options options) throws IOException {
+		ImageCache cache = ImageCache.getInstance(context);
+		File file = cache.getFile(tile.imageUrl);
+		if (file == null) {
+			try (Response response = NetworkStack.fetch(tile.imageUrl, network)) {
+				file = cache.putFile(tile.imageUrl, response.body().byteStream());
+			}
+		}
+
+		options.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+		// A sheet holds many thumbnails, so it is scaled by how far one tile exceeds the preview.
+		int reqWidth = tile.width > 0 && options.outWidth > 0
+				? (int) ((long) previewWidthPx * options.outWidth / tile.width)
+				: previewWidthPx;
+		options.inSampleSize = ImageLoadTask.calculateInSampleSize(options, reqWidth, 0);
+		options.inJustDecodeBounds = false;
+		return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+	}
+
+	/** Cuts {@code tile} out of a sheet decoded with {@code sampleSize}, or returns null if it lies outside it. */
+	@Nullable
+	private static Bitmap crop(Bitmap sheet, Tile tile, int sampleSize) {
+		if (tile.width <= 0 || tile.height <= 0) {
+			return sheet;
+		}
+		int x = tile.x / sampleSize;
+		int y = tile.y / sampleSize;
+		if (x < 0 || y < 0 || x >= sheet.getWidth() || y >= sheet.getHeight()) {
+			return null;
+		}
+		int width = Math.min(tile.width / sampleSize, sheet.getWidth() - x);
+		int height = Math.min(tile.height / sampleSize, sheet.getHeight() - y);
+		if (width <= 0 || height <= 0) {
+			return null;
+		}
+		return Bitmap.createBitmap(sheet, x, y, width, height);
+	}
+
+	private String sheetKey(String imageUrl) {
+		return ImageCache.memoryKey(imageUrl, previewWidthPx, 0);
+	}
+
+	private static List<Tile> loadTiles(String thumbnails, NetworkStack.Config network) {
+		try {
+			if (thumbnails.trim().startsWith("{")) {
+				return buildSpriteTiles(new JSONObject(thumbnails));
+			}
+			return parseVtt(thumbnails, fetchText(thumbnails, network));
+		} catch (IOException | JSONException | RuntimeException e) {
+			Log.e(TAG, "Could not load thumbnails: " + e);
+			return new ArrayList<>();
+		}
+	}
+
+	/** Tiles of a regular sprite grid, {@code columns * rows} thumbnails per sheet. */
+	private static List<Tile> buildSpriteTiles(JSONObject sprite) throws JSONException {
+		String url = sprite.getString("url");
+		long intervalMs = sprite.getLong("intervalMs");
+		int columns = sprite.getInt("columns");
+		int rows = sprite.getInt("rows");
+		int width = sprite.getInt("width");
+		int height = sprite.getInt("height");
+		int sheets = url.contains("{index}") ? sprite.optInt("sheets", 1) : 1;
+
+		List<Tile> tiles = new ArrayList<>();
+		for (int sheet = 0; sheet < sheets; sheet++) {
+			String sheetUrl = url.replace("{index}", String.valueOf(sheet));
+			for (int i = 0; i < columns * rows; i++) {
+				long startMs = (sheet * columns * rows + i) * intervalMs;
+				tiles.add(new Tile(startMs, startMs + intervalMs, sheetUrl, (i % columns) * width, (i / columns) * height, width, height));
+			}
+		}
+		return tiles;
+	}
+
+	/** Parses cues of the form {@code 00:00:05.000 --> 00:00:10.000} followed by {@code image.jpg#xywh=x,y,w,h}. */
+	private static List<Tile> parseVtt(String vttUrl, String vtt) throws IOException {
+		List<Tile> tiles = new ArrayList<>();
+		String[] lines = vtt.split("\r?\n");
+		for (int i = 0; i < lines.length - 1; i++) {
+			String line = lines[i];
+			int arrow = line.indexOf("-->");
+			if (arrow < 0) {
+				continue;
+			}
+
+			long startMs = parseTimestamp(line.substring(0, arrow).trim());
+			long endMs = parseTimestamp(line.substring(arrow + 3).trim().split("\\s+")[0]);
+			String target = lines[++i].trim();
+			int x = 0, y = 0, width = -1, height = -1;
+			int fragment = target.indexOf("#xywh=");
+			if (fragment >= 0) {
+				String[] xywh = target.substring(fragment + 6).split(",");
+				x = Integer.parseInt(xywh[0].trim());
+				y = Integer.parseInt(xywh[1].trim());
+				width = Integer.parseInt(xywh[2].trim());
+				height = Integer.parseInt(xywh[3].trim());
+				target = target.substring(0, fragment);
+			}
+			tiles.add(new Tile(startMs, endMs, new URL(new URL(vttUrl), target).toString(), x, y, width, height));
+		}
+		return tiles;
+	}
+
+	/** Parses {@code hh:mm:ss.mmm} or {@code mm:ss.mmm}. */
+	private static long parseTimestamp(String timestamp) {
+		String[] parts = timestamp.split(":");
+		long ms = 0;
+		for (int i = 0; i < parts.length - 1; i++) {
+			ms = (ms + Long.parseLong(parts[i])) * 60;
+		}
+		return (long) ((ms + Double.parseDouble(parts[parts.length - 1])) * 1000);
+	}
+
+	private static String fetchText(String url, NetworkStack.Config network) throws IOException {
+		try (Response response = NetworkStack.fetch(url, network)) {
+			return response.body().string();
+		}
+	}
+}
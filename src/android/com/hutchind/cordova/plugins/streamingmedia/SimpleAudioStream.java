@@ -1,12 +1,10 @@
 package com.hutchind.cordova.plugins.streamingmedia;
 
 import android.app.Activity;
+import android.content.ComponentName;
 import android.content.res.Configuration;
 import android.graphics.Color;
-import android.media.AudioManager;
 import android.content.Intent;
-import android.media.MediaPlayer;
-import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.MotionEvent;
@@ -16,26 +14,48 @@ import android.view.Window;
 import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
 import android.widget.MediaController;
-
+import androidx.core.content.ContextCompat;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.Timeline;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.session.SessionCommand;
+import androidx.media3.session.SessionResult;
+import androidx.media3.session.SessionToken;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+@UnstableApi
 public class SimpleAudioStream extends Activity implements
-MediaPlayer.OnCompletionListener, MediaPlayer.OnPreparedListener,
-MediaPlayer.OnErrorListener, MediaPlayer.OnBufferingUpdateListener,
-MediaController.MediaPlayerControl {
+Player.Listener, MediaController.MediaPlayerControl {
 
 	private String TAG = getClass().getSimpleName();
-	private MediaPlayer mMediaPlayer = null;
+	private Player mPlayer = null;
+	private ListenableFuture<androidx.media3.session.MediaController> mControllerFuture;
 	private MediaController mMediaController = null;
 	private LinearLayout mAudioView;
 	private View mMediaControllerView;
 	private String mAudioUrl;
+	private List<String> mQueuedUrls = new ArrayList<>();
 	private Boolean mShouldAutoClose = true;
+	private boolean mIsPrepared = false;
+	private Bundle mOptions;
+	private ImageLoadTask mImageLoadTask;
 
 	@Override
 	public void onCreate(Bundle icicle) {
 		super.onCreate(icicle);
 		this.requestWindowFeature(Window.FEATURE_NO_TITLE);
 		Bundle b = getIntent().getExtras();
+		mOptions = b;
 		mAudioUrl = b.getString("mediaUrl");
+		mQueuedUrls = getQueue(b);
 		String backgroundColor = b.getString("bgColor");
 		String backgroundImagePath = b.getString("bgImage");
 		String backgroundImageScale = b.getString("bgImageScale");
@@ -61,7 +81,8 @@ MediaController.MediaPlayerControl {
 
 		if (backgroundImagePath != null) {
 			ImageView bgImage = new ImageView(this);
-			new ImageLoadTask(backgroundImagePath, bgImage, getApplicationContext()).execute(null, null);
+			mImageLoadTask = new ImageLoadTask(backgroundImagePath, bgImage, getApplicationContext(), NetworkStack.Config.fromOptions(b));
+			mImageLoadTask.start();
 			RelativeLayout.LayoutParams bgImageLayoutParam = new RelativeLayout.LayoutParams(RelativeLayout.LayoutParams.MATCH_PARENT, RelativeLayout.LayoutParams.MATCH_PARENT);
 			bgImageLayoutParam.addRule(RelativeLayout.CENTER_IN_PARENT);
 			bgImage.setLayoutParams(bgImageLayoutParam);
@@ -85,101 +106,131 @@ MediaController.MediaPlayerControl {
 		play();
 	}
 
+	/** Connects to {@link StreamingAudioService}, which keeps playing when this activity goes away. */
 	private void play() {
-		Uri myUri = Uri.parse(mAudioUrl);
-		try {
-			if (mMediaPlayer == null) {
-				mMediaPlayer = new MediaPlayer();
-			} else {
-				try {
-					mMediaPlayer.stop();
-					mMediaPlayer.reset();
-				} catch (Exception e) {
-					Log.e(TAG, e.toString());
-				}
+		mMediaController = new MediaController(this);
+		StreamingAudioService.setOptions(mOptions);
+
+		SessionToken token = new SessionToken(this, new ComponentName(this, StreamingAudioService.class));
+		mControllerFuture = new androidx.media3.session.MediaController.Builder(this, token)
+				.setListener(new androidx.media3.session.MediaController.Listener() {
+					@Override
+					public ListenableFuture<SessionResult> onCustomCommand(androidx.media3.session.MediaController controller, SessionCommand command, Bundle args) {
+						if (StreamingAudioService.EVENT_PLAYER_ERROR.equals(command.customAction)) {
+							onServiceError(args);
+						}
+						return Futures.immediateFuture(new SessionResult(SessionResult.RESULT_SUCCESS));
+					}
+				})
+				.buildAsync();
+		mControllerFuture.addListener(() -> {
+			try {
+				onConnected(mControllerFuture.get());
+			} catch (Exception e) {
+				Log.e(TAG, "Could not connect to the audio service: " + e);
+				wrapItUp(RESULT_CANCELED, "Could not connect to the audio service.");
+			}
+		}, ContextCompat.getMainExecutor(this));
+	}
+
+	private void onConnected(Player player) {
+		mPlayer = player;
+		mPlayer.addListener(this);
+
+		// A recreated activity finds its stream still playing in the service.
+		MediaItem current = mPlayer.getCurrentMediaItem();
+		if (current != null && mAudioUrl.equals(current.mediaId) && mPlayer.getPlaybackState() != Player.STATE_IDLE) {
+			Log.d(TAG, "Reattached to playing stream");
+			if (mPlayer.getPlaybackState() == Player.STATE_READY) {
+				onPlaybackStateChanged(Player.STATE_READY);
 			}
-			mMediaPlayer.setDataSource(this, myUri); // Go to Initialized state
-			mMediaPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC);
-			mMediaPlayer.setOnPreparedListener(this);
-			mMediaPlayer.setOnCompletionListener(this);
-			mMediaPlayer.setOnBufferingUpdateListener(this);
-			mMediaPlayer.setOnErrorListener(this);
-			mMediaPlayer.setScreenOnWhilePlaying(true);
-			mMediaController = new MediaController(this);
-
-			mMediaPlayer.prepareAsync();
-
-			Log.d(TAG, "LoadClip Done");
-		} catch (Throwable t) {
-			Log.d(TAG, t.toString());
+			return;
+		}
+
+		// Queued items share one timeline, so the player can move between them without a gap.
+		List<MediaItem> mediaItems = new ArrayList<>();
+		mediaItems.add(StreamingAudioService.buildRequest(mAudioUrl, mOptions.getString("title")));
+		for (String url : mQueuedUrls) {
+			mediaItems.add(StreamingAudioService.buildRequest(url, null));
 		}
+
+		long startFromMs = getStartFrom(mOptions);
+		mPlayer.setMediaItems(mediaItems, 0, startFromMs > 0 ? startFromMs : C.TIME_UNSET);
+		mPlayer.setPlayWhenReady(true);
+		mPlayer.prepare();
+
+		Log.d(TAG, "LoadClip Done");
 	}
 
-	@Override
-	public void onPrepared(MediaPlayer mp) {
+	private void onPrepared() {
 		Log.d(TAG, "Stream is prepared");
 		mMediaController.setMediaPlayer(this);
 		mMediaController.setAnchorView(mMediaControllerView);
-		mMediaPlayer.start();
 		mMediaController.setEnabled(true);
 		mMediaController.show();
 	}
 
+	@Override
+	public void onPlaybackStateChanged(@Player.State int playbackState) {
+		if (playbackState == Player.STATE_READY && !mIsPrepared) {
+			mIsPrepared = true;
+			onPrepared();
+		} else if (playbackState == Player.STATE_ENDED) {
+			onCompletion();
+		}
+	}
+
+	@Override
+	public void onTimelineChanged(Timeline timeline, @Player.TimelineChangeReason int reason) {
+		// stopAudio cleared the queue in the service.
+		if (mIsPrepared && timeline.isEmpty()) {
+			wrapItUp(RESULT_OK, null);
+		}
+	}
+
 	@Override
 	public void start() {
-		if (mMediaPlayer!=null) {
-			mMediaPlayer.start();
+		if (mPlayer!=null) {
+			mPlayer.play();
 		}
 	}
 
 	@Override
 	public void pause() {
-		if (mMediaPlayer!=null) {
-			try {
-				mMediaPlayer.pause();
-			} catch (Exception e) {
-				Log.d(TAG, e.toString());
-			}
+		if (mPlayer!=null) {
+			mPlayer.pause();
 		}
 	}
 
 	private void stop() {
-		if (mMediaPlayer!=null) {
-			try {
-				mMediaPlayer.stop();
-			} catch (Exception e) {
-				Log.d(TAG, e.toString());
-			}
+		if (mPlayer!=null) {
+			mPlayer.stop();
 		}
 	}
 
 	public int getDuration() {
-		return (mMediaPlayer!=null) ? mMediaPlayer.getDuration() : 0;
+		if (mPlayer == null || mPlayer.getDuration() == C.TIME_UNSET) {
+			return 0;
+		}
+		return (int) mPlayer.getDuration();
 	}
 
 	public int getCurrentPosition() {
-		return (mMediaPlayer!=null) ? mMediaPlayer.getCurrentPosition() : 0;
+		return (mPlayer!=null) ? (int) mPlayer.getCurrentPosition() : 0;
 	}
 
 	public void seekTo(int i) {
-		if (mMediaPlayer!=null) {
-			mMediaPlayer.seekTo(i);
+		if (mPlayer!=null) {
+			mPlayer.seekTo(i);
 		}
 	}
 
 	public boolean isPlaying() {
-		if (mMediaPlayer!=null) {
-			try {
-				return mMediaPlayer.isPlaying();
-			} catch (Exception e) {
-				Log.d(TAG, e.toString());
-			}
-		}
-		return false;
+		return mPlayer != null && mPlayer.isPlaying();
 	}
 
 	public int getBufferPercentage() {
-		return 0;
+		return (mPlayer!=null) ? mPlayer.getBufferedPercentage() : 0;
 	}
 
 	public boolean canPause() {
@@ -196,20 +247,31 @@ MediaController.MediaPlayerControl {
 
 	@Override
 	public int getAudioSessionId() {
+		// The audio session belongs to the player in the service.
 		return 0;
 	}
 
 	@Override
 	public void onDestroy() {
 		super.onDestroy();
-		if (mMediaPlayer!=null){
-			try {
-				mMediaPlayer.reset();
-				mMediaPlayer.release();
-			} catch (Exception e) {
-				Log.e(TAG, e.toString());
+		if (mImageLoadTask != null) {
+			mImageLoadTask.cancel();
+			mImageLoadTask = null;
+		}
+		if (mPlayer!=null){
+			mPlayer.removeListener(this);
+			// Closing the player ends the stream; a recreated activity reattaches to it instead.
+			if (isFinishing()) {
+				// Stopping resets the position, so the resume position is saved first.
+				StreamingAudioService.saveCheckpoint();
+				mPlayer.stop();
+				mPlayer.clearMediaItems();
 			}
-			mMediaPlayer = null;
+			mPlayer = null;
+		}
+		if (mControllerFuture != null) {
+			androidx.media3.session.MediaController.releaseFuture(mControllerFuture);
+			mControllerFuture = null;
 		}
 	}
 
@@ -221,8 +283,7 @@ MediaController.MediaPlayerControl {
 	}
 
 
-	@Override
-	public void onCompletion(MediaPlayer mp) {
+	private void onCompletion() {
 		stop();
 		if (mShouldAutoClose) {
 			Log.v(TAG, "FINISHING ACTIVITY");
@@ -231,33 +292,50 @@ MediaController.MediaPlayerControl {
 
 	}
 
-	public boolean onError(MediaPlayer mp, int what, int extra) {
-		StringBuilder sb = new StringBuilder();
-		sb.append("Media Player Error: ");
-		switch (what) {
-			case MediaPlayer.MEDIA_ERROR_NOT_VALID_FOR_PROGRESSIVE_PLAYBACK:
-			sb.append("Not Valid for Progressive Playback");
-			break;
-			case MediaPlayer.MEDIA_ERROR_SERVER_DIED:
-			sb.append("Server Died");
-			break;
-			case MediaPlayer.MEDIA_ERROR_UNKNOWN:
-			sb.append("Unknown");
-			break;
-			default:
-			sb.append(" Non standard (");
-			sb.append(what);
-			sb.append(")");
+	/** Handles an error the service reported, once it knows whether the player failed over. */
+	private void onServiceError(Bundle args) {
+		PlaybackException error = PlaybackException.fromBundle(args.getBundle(StreamingAudioService.EXTRA_ERROR));
+		if (args.getBoolean(StreamingAudioService.EXTRA_FAILED_OVER, false)) {
+			Log.w(TAG, "Recovered from " + error.getErrorCodeName());
+			return;
 		}
-		sb.append(" (" + what + ") ");
-		sb.append(extra);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("Media Player Error (" + args.getString(StreamingAudioService.EXTRA_CATEGORY) + "): ");
+		sb.append(error.getErrorCodeName());
+		sb.append(" (" + error.errorCode + ") ");
+		sb.append(error.getMessage());
 		Log.e(TAG, sb.toString());
 		wrapItUp(RESULT_CANCELED, sb.toString());
-		return true;
 	}
 
-	public void onBufferingUpdate(MediaPlayer mp, int percent) {
-		Log.d(TAG, "PlayerService onBufferingUpdate : " + percent + "%");
+	private long getStartFrom(Bundle bundle) {
+		if (bundle.containsKey("startFrom")) {
+			return (long) (bundle.getDouble("startFrom", 0) * 1000);
+		}
+
+		if (bundle.getBoolean("rememberPosition", false)) {
+			return Math.max(ResumeStore.getPositionMs(this, mAudioUrl), 0);
+		}
+		return 0;
+	}
+
+	private List<String> getQueue(Bundle bundle) {
+		List<String> urls = new ArrayList<>();
+		String queue = bundle.getString("queue");
+		if (queue == null) {
+			return urls;
+		}
+
+		try {
+			JSONArray items = new JSONArray(queue);
+			for (int i = 0; i < items.length(); i++) {
+				urls.add(items.getString(i));
+			}
+		} catch (JSONException e) {
+			Log.e(TAG, "Invalid queue option, playing mediaUrl only.");
+		}
+		return urls;
 	}
 
 	@Override
@@ -2,33 +2,71 @@ package com.hutchind.cordova.plugins.streamingmedia;
 
 import android.app.Activity;
 import android.app.Application;
+import android.app.PendingIntent;
+import android.app.PictureInPictureParams;
+import android.app.RemoteAction;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.graphics.Rect;
+import android.graphics.drawable.Icon;
+import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
+import android.util.Rational;
 import android.view.View;
 import android.view.WindowManager;
 import android.widget.ImageButton;
 
 import androidx.annotation.OptIn;
+import androidx.annotation.RequiresApi;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.Lifecycle;
 import androidx.media3.common.MediaItem;
-import androidx.media3.common.MimeTypes;
+import androidx.media3.common.Player;
+import androidx.media3.common.VideoSize;
 import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
 import androidx.media3.ui.PlayerView;
 import androidx.mediarouter.app.MediaRouteButton;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import com.google.android.gms.cast.framework.CastButtonFactory;
 import com.google.android.gms.cast.framework.CastContext;
 
 @UnstableApi
 public class SimpleVideoStream extends AppCompatActivity {
+	private static final String ACTION_PIP_CONTROL = "com.hutchind.cordova.plugins.streamingmedia.PIP_CONTROL";
+	private static final String EXTRA_CONTROL = "control";
+	private static final int CONTROL_REWIND = 1;
+	private static final int CONTROL_PLAY_PAUSE = 2;
+	private static final int CONTROL_FORWARD = 3;
+	private static final Rational MAX_PIP_ASPECT_RATIO = new Rational(239, 100);
+	private static final Rational MIN_PIP_ASPECT_RATIO = new Rational(100, 239);
+
+	/** The manager of an activity being recreated, handed to the new instance so playback carries on. */
+	private static PlayerManager retainedPlayerManager;
+
 	protected PlayerView playerView;
 	private ImageButton closeButton;
 	private MediaRouteButton mrButton;
 
 	private PlayerManager playerManager;
+	private SeekPreview seekPreview;
 	private CastContext castContext;
+	private boolean pictureInPicture;
+	private BroadcastReceiver pipControlReceiver;
 
 	@Override
 	@OptIn(markerClass = UnstableApi.class)
@@ -41,35 +79,69 @@ public class SimpleVideoStream extends AppCompatActivity {
 			Log.d("MOM_Cast", e.toString());
 		}
 
+		Bundle b = getIntent().getExtras();
+		setRequestedOrientation(getOrientation(b));
+		pictureInPicture = b != null && b.getBoolean("pictureInPicture", false)
+				&& Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+				&& getPackageManager().hasSystemFeature(PackageManager.FEATURE_PICTURE_IN_PICTURE);
+
 		setContentView(getResourceId("layout", "activity_video"));
 		getWindow().getDecorView().setSystemUiVisibility(View.SYSTEM_UI_FLAG_FULLSCREEN
 				| View.SYSTEM_UI_FLAG_HIDE_NAVIGATION
 				| View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY);
 		getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
 
-		Bundle b = getIntent().getExtras();
 		String mVideoUrl = b != null ? b.getString("mediaUrl") : null;
 		if (b == null || mVideoUrl == null) {
 			finish();
+			return;
+		}
+
+		List<MediaItem> mediaItems = new ArrayList<>();
+		List<Long> startPositions = new ArrayList<>();
+		JSONArray queue = getQueue(b);
+		if (queue != null) {
+			for (int i = 0; i < queue.length(); i++) {
+				JSONObject item = queue.optJSONObject(i);
+				String url = item != null ? item.optString("url", null) : queue.optString(i, null);
+				if (url == null) {
+					continue;
+				}
+				MediaItem mediaItem = buildMediaItem(url, b, item != null ? item.optJSONArray("subtitles") : null);
+				String mimeType = item != null ? item.optString("mimeType", null) : null;
+				mediaItems.add(mimeType != null ? mediaItem.buildUpon().setMimeType(mimeType).build() : mediaItem);
+				long startFrom = item != null ? (long) (item.optDouble("startFrom", 0) * 1000) : 0L;
+				startPositions.add(startFrom > 0 ? startFrom : getRememberedPosition(b, url));
+			}
+		}
+		if (mediaItems.isEmpty()) {
+			mediaItems.add(buildMediaItem(mVideoUrl, b, SubtitleTracks.fromOptions(b)));
+			long startFrom = getStartFrom(b);
+			startPositions.add(startFrom > 0 ? startFrom : getRememberedPosition(b, mVideoUrl));
 		}
 
-		MediaItem mediaItem;
+		long[] startPositionsMs = new long[startPositions.size()];
+		for (int i = 0; i < startPositionsMs.length; i++) {
+			startPositionsMs[i] = startPositions.get(i);
+		}
 
-		if (mVideoUrl != null && mVideoUrl.contains(".m3u8")) {
-			mediaItem = new MediaItem.Builder()
-					.setUri(mVideoUrl)
-					.setMimeType(MimeTypes.APPLICATION_M3U8)
-					.build();
+		playerView = findViewById(getResourceId("id", "player_view"));
+		if (savedInstanceState != null && retainedPlayerManager != null) {
+			playerManager = retainedPlayerManager;
+			playerManager.setPlayerView(playerView);
 		} else {
-			mediaItem = MediaItem.fromUri(mVideoUrl);
+			if (retainedPlayerManager != null) {
+				retainedPlayerManager.release();
+			}
+			playerManager = new PlayerManager(this, playerView, castContext, mediaItems, getLanguage(b), startPositionsMs, b);
 		}
+		retainedPlayerManager = null;
 
-		playerView = findViewById(getResourceId("id", "player_view"));
-		playerManager = new PlayerManager(this, playerView, castContext, mediaItem, getLanguage(b), getStartFrom(b));
+		seekPreview = SeekPreview.attach(playerView, b);
 
 		playerView.requestFocus();
-		playerView.setShowPreviousButton(false);
-		playerView.setShowNextButton(false);
+		playerView.setShowPreviousButton(mediaItems.size() > 1);
+		playerView.setShowNextButton(mediaItems.size() > 1);
 
 		playerView.setControllerVisibilityListener((PlayerView.ControllerVisibilityListener) visibility -> {
 			if (visibility == View.VISIBLE) {
@@ -96,15 +168,7 @@ public class SimpleVideoStream extends AppCompatActivity {
 		playerView.hideController();
 
 		closeButton = findViewById(getResourceId("id", "exo_close"));
-		closeButton.setOnClickListener(v -> {
-			long finishAt = playerManager.stop();
-
-			Intent intent = new Intent();
-			intent.putExtra("finishAt", finishAt);
-
-			setResult(Activity.RESULT_OK, intent);
-			finish();
-		});
+		closeButton.setOnClickListener(v -> finishWithResult());
 
 		mrButton = findViewById(getResourceId("id", "exo_cast_button"));
 		CastButtonFactory.setUpMediaRouteButton(getApplicationContext(), mrButton);
@@ -112,17 +176,153 @@ public class SimpleVideoStream extends AppCompatActivity {
 	}
 
 	@Override
-	protected void onDestroy() {
-		if (castContext == null) {
+	protected void onPause() {
+		super.onPause();
+		if (playerManager != null) {
+			playerManager.saveResumePosition();
+		}
+	}
+
+	@Override
+	protected void onUserLeaveHint() {
+		super.onUserLeaveHint();
+		if (pictureInPicture && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && playerManager != null) {
+			Player player = playerManager.getCurrentPlayer();
+			// Cast playback goes on without the activity, so only local playback moves into the window.
+			if (player instanceof ExoPlayer && player.getPlayWhenReady()) {
+				enterPictureInPictureMode(buildPictureInPictureParams());
+			}
+		}
+	}
+
+	@Override
+	public void onPictureInPictureModeChanged(boolean isInPictureInPictureMode, Configuration newConfig) {
+		super.onPictureInPictureModeChanged(isInPictureInPictureMode, newConfig);
+		playerView.setUseController(!isInPictureInPictureMode);
+		if (isInPictureInPictureMode) {
+			closeButton.setVisibility(View.GONE);
+			mrButton.setVisibility(View.GONE);
+			registerPipControlReceiver();
 			return;
 		}
 
-		playerManager.release();
-		playerManager = null;
+		unregisterPipControlReceiver();
+		// Leaving picture-in-picture while stopped means the window was dismissed, not expanded.
+		if (getLifecycle().getCurrentState() == Lifecycle.State.CREATED) {
+			finishWithResult();
+		}
+	}
+
+	@Override
+	protected void onDestroy() {
+		unregisterPipControlReceiver();
+		if (seekPreview != null) {
+			seekPreview.release();
+			seekPreview = null;
+		}
+		if (playerManager != null) {
+			if (isChangingConfigurations()) {
+				retainedPlayerManager = playerManager;
+			} else {
+				playerManager.release();
+			}
+			playerManager = null;
+		}
 
 		super.onDestroy();
 	}
 
+	private void finishWithResult() {
+		long finishAt = playerManager.stop();
+
+		Intent intent = new Intent();
+		intent.putExtra("finishAt", finishAt);
+		intent.putExtra("items", playerManager.getItemResults().toString());
+		intent.putExtra("qoe", playerManager.getQoe().toString());
+
+		setResult(Activity.RESULT_OK, intent);
+		finish();
+	}
+
+	@RequiresApi(Build.VERSION_CODES.O)
+	private PictureInPictureParams buildPictureInPictureParams() {
+		Player player = playerManager.getCurrentPlayer();
+		VideoSize videoSize = player.getVideoSize();
+		Rational aspectRatio = new Rational(16, 9);
+		if (videoSize.width > 0 && videoSize.height > 0) {
+			aspectRatio = new Rational(Math.round(videoSize.width * videoSize.pixelWidthHeightRatio), videoSize.height);
+		}
+		if (aspectRatio.compareTo(MAX_PIP_ASPECT_RATIO) > 0) {
+			aspectRatio = MAX_PIP_ASPECT_RATIO;
+		} else if (aspectRatio.compareTo(MIN_PIP_ASPECT_RATIO) < 0) {
+			aspectRatio = MIN_PIP_ASPECT_RATIO;
+		}
+
+		Rect sourceRectHint = new Rect();
+		playerView.getGlobalVisibleRect(sourceRectHint);
+
+		List<RemoteAction> actions = new ArrayList<>();
+		actions.add(buildRemoteAction(CONTROL_REWIND, android.R.drawable.ic_media_rew, "Rewind"));
+		actions.add(player.getPlayWhenReady()
+				? buildRemoteAction(CONTROL_PLAY_PAUSE, android.R.drawable.ic_media_pause, "Pause")
+				: buildRemoteAction(CONTROL_PLAY_PAUSE, android.R.drawable.ic_media_play, "Play"));
+		actions.add(buildRemoteAction(CONTROL_FORWARD, android.R.drawable.ic_media_ff, "Fast forward"));
+
+		return new PictureInPictureParams.Builder()
+				.setAspectRatio(aspectRatio)
+				.setSourceRectHint(sourceRectHint)
+				.setActions(actions)
+				.build();
+	}
+
+	@RequiresApi(Build.VERSION_CODES.O)
+	private RemoteAction buildRemoteAction(int control, int iconId, String title) {
+		Intent intent = new Intent(ACTION_PIP_CONTROL)
+				.setPackage(getPackageName())
+				.putExtra(EXTRA_CONTROL, control);
+		PendingIntent pendingIntent = PendingIntent.getBroadcast(this, control, intent, PendingIntent.FLAG_IMMUTABLE);
+		return new RemoteAction(Icon.createWithResource(this, iconId), title, title, pendingIntent);
+	}
+
+	private void registerPipControlReceiver() {
+		if (pipControlReceiver != null) {
+			return;
+		}
+
+		pipControlReceiver = new BroadcastReceiver() {
+			@Override
+			public void onReceive(Context context, Intent intent) {
+				if (playerManager == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+					return;
+				}
+
+				Player player = playerManager.getCurrentPlayer();
+				switch (intent.getIntExtra(EXTRA_CONTROL, 0)) {
+					case CONTROL_REWIND:
+						player.seekBack();
+						break;
+					case CONTROL_PLAY_PAUSE:
+						player.setPlayWhenReady(!player.getPlayWhenReady());
+						break;
+					case CONTROL_FORWARD:
+						player.seekForward();
+						break;
+					default:
+						return;
+				}
+				setPictureInPictureParams(buildPictureInPictureParams());
+			}
+		};
+		ContextCompat.registerReceiver(this, pipControlReceiver, new IntentFilter(ACTION_PIP_CONTROL), ContextCompat.RECEIVER_NOT_EXPORTED);
+	}
+
+	private void unregisterPipControlReceiver() {
+		if (pipControlReceiver != null) {
+			unregisterReceiver(pipControlReceiver);
+			pipControlReceiver = null;
+		}
+	}
+
 	private int getResourceId(String type, String name) {
 		Application app = getApplication();
 		String packageName = app.getPackageName();
@@ -130,6 +330,38 @@ public class SimpleVideoStream extends AppCompatActivity {
 		return app.getResources().getIdentifier(name, type, packageName);
 	}
 
+	private MediaItem buildMediaItem(String url, Bundle options, JSONArray subtitles) {
+		MediaItem mediaItem = DownloadTracker.getDownloadedMediaItem(this, url);
+		if (mediaItem == null) {
+			mediaItem = PlayerManager.buildMediaItem(url, options);
+		}
+		return SubtitleTracks.attach(mediaItem, subtitles);
+	}
+
+	private JSONArray getQueue(Bundle bundle) {
+		if (bundle == null || !bundle.containsKey("items")) {
+			return null;
+		}
+
+		try {
+			return new JSONArray(bundle.getString("items"));
+		} catch (JSONException e) {
+			Log.e("SimpleVideoStream", "Invalid items: " + e);
+			return null;
+		}
+	}
+
+	/** Maps the {@code orientation} option as on iOS. Without it the player stays in landscape, as it always did. */
+	private static int getOrientation(Bundle bundle) {
+		String orientation = bundle != null ? bundle.getString("orientation", "landscape") : "landscape";
+		if ("landscape".equals(orientation)) {
+			return ActivityInfo.SCREEN_ORIENTATION_SENSOR_LANDSCAPE;
+		} else if ("portrait".equals(orientation)) {
+			return ActivityInfo.SCREEN_ORIENTATION_SENSOR_PORTRAIT;
+		}
+		return ActivityInfo.SCREEN_ORIENTATION_FULL_USER;
+	}
+
 	private String getLanguage(Bundle bundle) {
 		String lang = StreamingMedia.DEFAULT_LANGUAGE;
 
@@ -142,9 +374,17 @@ public class SimpleVideoStream extends AppCompatActivity {
 
 	private long getStartFrom(Bundle bundle) {
 		if (bundle != null && bundle.containsKey("startFrom")) {
-			return bundle.getInt("startFrom", 0) * 1000L;
+			return (long) (bundle.getDouble("startFrom", 0) * 1000);
 		}
 
 		return 0;
 	}
+
+	private long getRememberedPosition(Bundle bundle, String url) {
+		if (bundle == null || !bundle.getBoolean("rememberPosition", false)) {
+			return 0;
+		}
+
+		return Math.max(ResumeStore.getPositionMs(this, url), 0);
+	}
 }
@@ -0,0 +1,268 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.media3.common.AudioAttributes;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MediaMetadata;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.session.MediaSession;
+import androidx.media3.session.MediaSessionService;
+import androidx.media3.session.SessionCommand;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * Owns the audio player in a {@link MediaSessionService}, so the stream keeps its connection and
+ * buffer while {@link SimpleAudioStream} is in the background or recreated. The service is in the
+ * foreground with a media notification while audio plays.
+ *
+ * <p>Controllers add items with only {@link MediaItem.RequestMetadata#mediaUri} set; the session
+ * resolves them to downloaded or streamed items. The play options in effect when the service is
+ * created pick its pooled player, later changes only toggle {@code rememberPosition}.
+ *
+ * <p>The service is exported for system media controls, but only this app and trusted controllers
+ * may connect, and only URLs of the current play options may be queued, since they are fetched
+ * with its {@code headers}.
+ *
+ * <p>Controllers see a player error whether or not the player then fails over to a fallback URL,
+ * so the outcome is sent to them as an {@link #EVENT_PLAYER_ERROR} custom command.
+ */
+@UnstableApi
+public class StreamingAudioService extends MediaSessionService implements Player.Listener {
+	/** Custom command sent to controllers once a player error was handled. */
+	static final String EVENT_PLAYER_ERROR = "com.hutchind.cordova.plugins.streamingmedia.PLAYER_ERROR";
+	/** The {@link PlaybackException#toBundle() error} of an {@link #EVENT_PLAYER_ERROR}. */
+	static final String EXTRA_ERROR = "error";
+	/** The {@link ErrorRecovery#classify(PlaybackException) category} of an {@link #EVENT_PLAYER_ERROR}. */
+	static final String EXTRA_CATEGORY = "category";
+	/** Whether the player failed over and keeps playing after an {@link #EVENT_PLAYER_ERROR}. */
+	static final String EXTRA_FAILED_OVER = "failedOver";
+
+	private static final String TAG = "StreamingAudioService";
+
+	private static Bundle options;
+	private static StreamingAudioService instance;
+
+	private MediaSession session;
+	private ExoPlayer player;
+	private ResumeStore.Checkpoint checkpoint;
+	@Nullable private DataSaver dataSaver;
+	private ErrorRecovery errorRecovery;
+
+	/** Sets the play options for the next session. Must be called on the main thread. */
+	static void setOptions(Bundle playOptions) {
+		options = playOptions;
+		if (instance != null) {
+			instance.applyOptions();
+		}
+	}
+
+	/** Returns the player of the running service, or null. Must be called on the main thread. */
+	@Nullable
+	static Player getPlayer() {
+		return instance != null ? instance.player : null;
+	}
+
+	/**
+	 * Saves the resume position of the running service's current item, if {@code rememberPosition}
+	 * is set. Must be called on the main thread, before a controller stops the player.
+	 */
+	static void saveCheckpoint() {
+		if (instance != null && instance.checkpoint != null) {
+			instance.checkpoint.save();
+		}
+	}
+
+	/** Builds a request for {@code url} to be resolved by the session. */
+	static MediaItem buildRequest(String url, @Nullable String title) {
+		return new MediaItem.Builder()
+				.setMediaId(url)
+				.setRequestMetadata(new MediaItem.RequestMetadata.Builder().setMediaUri(Uri.parse(url)).build())
+				.setMediaMetadata(new MediaMetadata.Builder().setTitle(title).build())
+				.build();
+	}
+
+	@Override
+	public void onCreate() {
+		super.onCreate();
+		instance = this;
+
+		player = PlayerPool.acquire(this, options);
+		player.setAudioAttributes(new AudioAttributes.Builder()
+				.setUsage(C.USAGE_MEDIA)
+				.setContentType(C.AUDIO_CONTENT_TYPE_MUSIC)
+				.build(), true);
+		player.setHandleAudioBecomingNoisy(true);
+		player.setWakeMode(C.WAKE_MODE_NETWORK);
+		player.addListener(this);
+		PlaybackEvents.attach(player, "audio");
+		dataSaver = DataSaver.attach(this, player, options);
+		MemoryPressure.attach(this, player, dataSaver);
+		errorRecovery = ErrorRecovery.attach(player, options, this::sendPlayerError);
+
+		session = new MediaSession.Builder(this, player)
+				.setCallback(new SessionCallback())
+				.build();
+		applyOptions();
+	}
+
+	@Nullable
+	@Override
+	public MediaSession onGetSession(MediaSession.ControllerInfo controllerInfo) {
+		return session;
+	}
+
+	@Override
+	public void onTaskRemoved(@Nullable Intent rootIntent) {
+		if (!player.getPlayWhenReady() || player.getMediaItemCount() == 0) {
+			stopSelf();
+		}
+	}
+
+	@Override
+	public void onDestroy() {
+		instance = null;
+		if (checkpoint != null) {
+			checkpoint.save();
+			checkpoint.stop();
+		}
+		ResumeStore.flush();
+
+		session.release();
+		player.removeListener(this);
+		PlaybackEvents.detach(player);
+		MemoryPressure.detach(player);
+		errorRecovery.release();
+		if (dataSaver != null) {
+			dataSaver.release();
+		}
+		PlayerPool.release(player);
+		super.onDestroy();
+	}
+
+	// Player.Listener implementation.
+	@Override
+	public void onPositionDiscontinuity(Player.PositionInfo oldPosition, Player.PositionInfo newPosition, @Player.DiscontinuityReason int reason) {
+		// An item that played to its end no longer has a resume position.
+		String url = oldPosition.mediaItem != null ? ResumeStore.getKey(oldPosition.mediaItem) : null;
+		if (checkpoint != null && reason == Player.DISCONTINUITY_REASON_AUTO_TRANSITION && url != null) {
+			ResumeStore.save(this, url, 0);
+		}
+	}
+
+	@Override
+	public void onPlayerError(PlaybackException error) {
+		ContentTypeResolver.onPlaybackFailed(player.getCurrentMediaItem(), error);
+	}
+
+	@Override
+	public void onPlaybackStateChanged(@Player.State int playbackState) {
+		if (checkpoint != null && playbackState == Player.STATE_ENDED) {
+			checkpoint.save();
+		}
+	}
+
+	// Internal methods.
+	private void applyOptions() {
+		errorRecovery.setOptions(options);
+		boolean rememberPosition = options != null && options.getBoolean("rememberPosition", false);
+		if (rememberPosition && checkpoint == null) {
+			checkpoint = new ResumeStore.Checkpoint(this, player);
+			checkpoint.start();
+		} else if (!rememberPosition && checkpoint != null) {
+			checkpoint.stop();
+			checkpoint = null;
+		}
+	}
+
+	private void sendPlayerError(PlaybackException error, String category, boolean failedOver) {
+		Bundle args = new Bundle();
+		args.putBundle(EXTRA_ERROR, error.toBundle());
+		args.putString(EXTRA_CATEGORY, category);
+		args.putBoolean(EXTRA_FAILED_OVER, failedOver);
+		session.broadcastCustomCommand(new SessionCommand(EVENT_PLAYER_ERROR, Bundle.EMPTY), args);
+	}
+
+	/** Returns whether {@code url} is the {@code mediaUrl} or in the {@code queue} of the play options. */
+	private static boolean isQueued(String url) {
+		if (options == null) {
+			return false;
+		}
+		if (url.equals(options.getString("mediaUrl"))) {
+			return true;
+		}
+
+		String queue = options.getString("queue");
+		if (queue == null) {
+			return false;
+		}
+		try {
+			JSONArray urls = new JSONArray(queue);
+			for (int i = 0; i < urls.length(); i++) {
+				if (url.equals(urls.optString(i, null))) {
+					return true;
+				}
+			}
+		} catch (JSONException e) {
+			// SimpleAudioStream plays mediaUrl alone in this case.
+		}
+		return false;
+	}
+
+	private MediaItem resolve(MediaItem request) {
+		Uri uri = request.requestMetadata.mediaUri;
+		if (uri == null) {
+			return request;
+		}
+
+		String url = uri.toString();
+		MediaItem mediaItem = DownloadTracker.getDownloadedMediaItem(this, url);
+		if (mediaItem == null) {
+			// Queued URLs share only the probe setting, mimeType and live describe mediaUrl alone.
+			Bundle resolveOptions = new Bundle();
+			resolveOptions.putBoolean("probeContentType", options != null && options.getBoolean("probeContentType", false));
+			mediaItem = PlayerManager.buildMediaItem(url, resolveOptions);
+		}
+		return mediaItem.buildUpon()
+				.setMediaId(url)
+				.setMediaMetadata(request.mediaMetadata)
+				.build();
+	}
+
+	private class SessionCallback implements MediaSession.Callback {
+		@Override
+		public MediaSession.ConnectionResult onConnect(MediaSession mediaSession, MediaSession.ControllerInfo controller) {
+			// isTrusted() covers the media notification and system UI as well as this app's own uid.
+			if (!controller.isTrusted() && !getPackageName().equals(controller.getPackageName())) {
+				Log.w(TAG, "Rejected controller " + controller.getPackageName());
+				return MediaSession.ConnectionResult.reject();
+			}
+			return MediaSession.Callback.super.onConnect(mediaSession, controller);
+		}
+
+		@Override
+		public ListenableFuture<List<MediaItem>> onAddMediaItems(MediaSession mediaSession, MediaSession.ControllerInfo controller, List<MediaItem> mediaItems) {
+			List<MediaItem> resolved = new ArrayList<>();
+			for (MediaItem mediaItem : mediaItems) {
+				Uri uri = mediaItem.requestMetadata.mediaUri;
+				if (uri == null || !isQueued(uri.toString())) {
+					return Futures.immediateFailedFuture(new SecurityException("Not in the current play options: " + uri));
+				}
+				resolved.add(resolve(mediaItem));
+			}
+			return Futures.immediateFuture(resolved);
+		}
+	}
+}
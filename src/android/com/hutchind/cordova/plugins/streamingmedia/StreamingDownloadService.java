@@ -0,0 +1,57 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.os.Build;
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.offline.Download;
+import androidx.media3.exoplayer.offline.DownloadManager;
+import androidx.media3.exoplayer.offline.DownloadNotificationHelper;
+import androidx.media3.exoplayer.offline.DownloadService;
+import androidx.media3.exoplayer.scheduler.Scheduler;
+import java.util.List;
+
+/** Runs the downloads queued through {@link DownloadTracker} with a foreground progress notification. */
+@UnstableApi
+public class StreamingDownloadService extends DownloadService {
+	private static final int FOREGROUND_NOTIFICATION_ID = 7001;
+	private static final String CHANNEL_ID = "streaming_media_downloads";
+	private static final String CHANNEL_NAME = "Downloads";
+
+	private DownloadNotificationHelper notificationHelper;
+
+	public StreamingDownloadService() {
+		// The channel is created in onCreate, since the plugin has no compile-time string resources.
+		super(FOREGROUND_NOTIFICATION_ID, DEFAULT_FOREGROUND_NOTIFICATION_UPDATE_INTERVAL);
+	}
+
+	@Override
+	public void onCreate() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+			NotificationManager notificationManager = getSystemService(NotificationManager.class);
+			notificationManager.createNotificationChannel(
+					new NotificationChannel(CHANNEL_ID, CHANNEL_NAME, NotificationManager.IMPORTANCE_LOW));
+		}
+		notificationHelper = new DownloadNotificationHelper(this, CHANNEL_ID);
+		super.onCreate();
+	}
+
+	@Override
+	protected DownloadManager getDownloadManager() {
+		return DownloadTracker.getInstance(this).getDownloadManager();
+	}
+
+	@Nullable
+	@Override
+	protected Scheduler getScheduler() {
+		return null;
+	}
+
+	@Override
+	protected Notification getForegroundNotification(List<Download> downloads, int notMetRequirements) {
+		return notificationHelper.buildProgressNotification(
+				this, android.R.drawable.stat_sys_download, null, null, downloads, notMetRequirements);
+	}
+}
@@ -0,0 +1,82 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+
+/**
+ * {@link DefaultLoadControl} that can temporarily cap buffering, so a preloaded player fetches
+ * only the first few seconds until it is handed over for playback, and a player in data saver mode
+ * or under memory pressure keeps less media ahead.
+ *
+ * <p>The data saver and memory caps never go below what the policy needs to start or resume
+ * playback, so a cap cannot stall the player.
+ */
+@UnstableApi
+class StreamingLoadControl extends DefaultLoadControl {
+	private volatile long preloadLimitUs = C.TIME_UNSET;
+	private volatile long bufferCapUs = C.TIME_UNSET;
+	private volatile long memoryCapUs = C.TIME_UNSET;
+	private final long minCapUs;
+
+	public StreamingLoadControl(BufferPolicy policy) {
+		super(
+				new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE),
+				policy.minBufferMs,
+				policy.maxBufferMs,
+				policy.bufferForPlaybackMs,
+				policy.bufferForPlaybackAfterRebufferMs,
+				policy.targetBufferBytes,
+				DEFAULT_PRIORITIZE_TIME_OVER_SIZE_THRESHOLDS,
+				policy.backBufferMs,
+				DEFAULT_RETAIN_BACK_BUFFER_FROM_KEYFRAME);
+		minCapUs = Math.max(policy.bufferForPlaybackMs, policy.bufferForPlaybackAfterRebufferMs) * 1000L;
+	}
+
+	/** Stops loading once {@code limitMs} of media is buffered, until {@link #clearPreloadLimit()}. */
+	public void setPreloadLimitMs(long limitMs) {
+		preloadLimitUs = limitMs * 1000;
+	}
+
+	/** Returns to the regular buffering targets. The player resumes loading on its next update. */
+	public void clearPreloadLimit() {
+		preloadLimitUs = C.TIME_UNSET;
+	}
+
+	/** Caps the forward buffer below the policy's maximum, or lifts the cap with {@link C#TIME_UNSET}. */
+	public void setBufferCapMs(long capMs) {
+		bufferCapUs = toCapUs(capMs);
+	}
+
+	/** Caps the forward buffer while memory is low, or lifts the cap with {@link C#TIME_UNSET}. */
+	public void setMemoryCapMs(long capMs) {
+		memoryCapUs = toCapUs(capMs);
+	}
+
+	/** Frees allocations the buffer no longer holds, instead of keeping them for reuse. */
+	public void releaseUnusedAllocations() {
+		((DefaultAllocator) getAllocator()).trim();
+	}
+
+	@Override
+	public boolean shouldContinueLoading(Parameters parameters) {
+		long limitUs = preloadLimitUs;
+		if (limitUs != C.TIME_UNSET && parameters.bufferedDurationUs >= limitUs) {
+			return false;
+		}
+		long capUs = bufferCapUs;
+		if (capUs != C.TIME_UNSET && parameters.bufferedDurationUs >= capUs) {
+			return false;
+		}
+		capUs = memoryCapUs;
+		if (capUs != C.TIME_UNSET && parameters.bufferedDurationUs >= capUs) {
+			return false;
+		}
+		return super.shouldContinueLoading(parameters);
+	}
+
+	private long toCapUs(long capMs) {
+		return capMs != C.TIME_UNSET ? Math.max(capMs * 1000, minCapUs) : C.TIME_UNSET;
+	}
+}
@@ -3,7 +3,9 @@ package com.hutchind.cordova.plugins.streamingmedia;
 import android.app.Activity;
 import android.os.Bundle;
 import android.util.Log;
+import android.content.Context;
 import android.content.Intent;
+import androidx.media3.common.Player;
 import java.util.Iterator;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -11,22 +13,47 @@ import org.json.JSONException;
 import org.apache.cordova.CallbackContext;
 import org.apache.cordova.CordovaInterface;
 import org.apache.cordova.CordovaPlugin;
+import org.apache.cordova.PluginResult;
 
 public class StreamingMedia extends CordovaPlugin {
 	public static final String DEFAULT_LANGUAGE = "en";
 
 	public static final String ACTION_PLAY_AUDIO = "playAudio";
+	public static final String ACTION_PAUSE_AUDIO = "pauseAudio";
+	public static final String ACTION_RESUME_AUDIO = "resumeAudio";
+	public static final String ACTION_STOP_AUDIO = "stopAudio";
 	public static final String ACTION_PLAY_VIDEO = "playVideo";
+	public static final String ACTION_PRELOAD_VIDEO = "preloadVideo";
+	public static final String ACTION_GET_CACHE_STATS = "getCacheStats";
+	public static final String ACTION_GET_NETWORK_STATS = "getNetworkStats";
+	public static final String ACTION_SET_QOE_LISTENER = "setQoeListener";
+	public static final String ACTION_SET_EVENT_LISTENER = "setEventListener";
+	public static final String ACTION_DOWNLOAD_MEDIA = "downloadMedia";
+	public static final String ACTION_REMOVE_DOWNLOAD = "removeDownload";
+	public static final String ACTION_LIST_DOWNLOADS = "listDownloads";
+	public static final String ACTION_GET_RESUME_POSITION = "getResumePosition";
+	public static final String ACTION_CLEAR_RESUME_POSITION = "clearResumePosition";
+	public static final String ACTION_CREATE_INLINE_PLAYER = "createInlinePlayer";
+	public static final String ACTION_SET_INLINE_PLAYER_RECT = "setInlinePlayerRect";
+	public static final String ACTION_LOAD_INLINE_PLAYER = "loadInlinePlayer";
+	public static final String ACTION_PLAY_INLINE_PLAYER = "playInlinePlayer";
+	public static final String ACTION_PAUSE_INLINE_PLAYER = "pauseInlinePlayer";
+	public static final String ACTION_SEEK_INLINE_PLAYER = "seekInlinePlayer";
+	public static final String ACTION_DESTROY_INLINE_PLAYER = "destroyInlinePlayer";
 
 	private static final int ACTIVITY_CODE_PLAY_MEDIA = 7;
 
+	/** The plugin whose {@code setQoeListener} callback receives the player activity's updates. */
+	private static volatile StreamingMedia qoePlugin;
+
 	private CallbackContext callbackContext;
+	private volatile CallbackContext qoeCallbackContext;
+	private InlinePlayer inlinePlayer;
 
 	private static final String TAG = "StreamingMediaPlugin";
 
 	@Override
 	public boolean execute(String action, JSONArray args, CallbackContext callbackContext) throws JSONException {
-		this.callbackContext = callbackContext;
 		JSONObject options = null;
 
 		try {
@@ -36,58 +63,337 @@ public class StreamingMedia extends CordovaPlugin {
 		}
 
 		if (ACTION_PLAY_AUDIO.equals(action)) {
+			this.callbackContext = callbackContext;
 			return playAudio(args.getString(0), options);
+		} else if (ACTION_PAUSE_AUDIO.equals(action) || ACTION_RESUME_AUDIO.equals(action) || ACTION_STOP_AUDIO.equals(action)) {
+			return controlAudio(action, callbackContext);
 		} else if (ACTION_PLAY_VIDEO.equals(action)) {
+			this.callbackContext = callbackContext;
+			Object target = args.get(0);
+			if (target instanceof JSONArray) {
+				return playVideoQueue((JSONArray) target, options);
+			}
 			return playVideo(args.getString(0), options);
+		} else if (ACTION_PRELOAD_VIDEO.equals(action)) {
+			return preloadVideo(args.getString(0), options, callbackContext);
+		} else if (ACTION_SET_QOE_LISTENER.equals(action)) {
+			qoeCallbackContext = callbackContext;
+			qoePlugin = this;
+			PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
+			result.setKeepCallback(true);
+			callbackContext.sendPluginResult(result);
+			return true;
+		} else if (ACTION_SET_EVENT_LISTENER.equals(action)) {
+			// The listener options come first, there is no URL argument.
+			final int eventIntervalMs;
+			try {
+				eventIntervalMs = PlaybackEvents.getIntervalMs(args.optJSONObject(0));
+			} catch (IllegalArgumentException e) {
+				callbackContext.error(e.getMessage());
+				return true;
+			}
+			cordova.getActivity().runOnUiThread((Runnable) () -> PlaybackEvents.setCallback(callbackContext, eventIntervalMs));
+			PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
+			result.setKeepCallback(true);
+			callbackContext.sendPluginResult(result);
+			return true;
+		} else if (ACTION_DOWNLOAD_MEDIA.equals(action)) {
+			return downloadMedia(args.getString(0), options, callbackContext);
+		} else if (ACTION_REMOVE_DOWNLOAD.equals(action)) {
+			final String url = args.getString(0);
+			cordova.getActivity().runOnUiThread((Runnable) () -> {
+				DownloadTracker.getInstance(cordova.getActivity()).remove(url);
+				callbackContext.success();
+			});
+			return true;
+		} else if (ACTION_LIST_DOWNLOADS.equals(action)) {
+			cordova.getActivity().runOnUiThread((Runnable) () -> {
+				try {
+					callbackContext.success(DownloadTracker.getInstance(cordova.getActivity()).listDownloads());
+				} catch (JSONException e) {
+					callbackContext.error(e.getMessage());
+				}
+			});
+			return true;
+		} else if (ACTION_CREATE_INLINE_PLAYER.equals(action) || ACTION_SET_INLINE_PLAYER_RECT.equals(action)
+				|| ACTION_LOAD_INLINE_PLAYER.equals(action) || ACTION_PLAY_INLINE_PLAYER.equals(action)
+				|| ACTION_PAUSE_INLINE_PLAYER.equals(action) || ACTION_SEEK_INLINE_PLAYER.equals(action)
+				|| ACTION_DESTROY_INLINE_PLAYER.equals(action)) {
+			return executeInline(action, args, options, callbackContext);
+		} else if (ACTION_GET_RESUME_POSITION.equals(action)) {
+			callbackContext.success(ResumeStore.toJson(cordova.getActivity(), args.getString(0)));
+			return true;
+		} else if (ACTION_CLEAR_RESUME_POSITION.equals(action)) {
+			ResumeStore.clear(cordova.getActivity(), args.getString(0));
+			callbackContext.success();
+			return true;
+		} else if (ACTION_GET_CACHE_STATS.equals(action)) {
+			callbackContext.success(MediaCache.getStats());
+			return true;
+		} else if (ACTION_GET_NETWORK_STATS.equals(action)) {
+			callbackContext.success(NetworkStack.getStats());
+			return true;
 		} else {
 			callbackContext.error("streamingMedia." + action + " is not a supported method.");
 			return false;
 		}
 	}
 
+	/** Runs an action of the inline player on the UI thread, which owns the player and its view. */
+	private boolean executeInline(final String action, final JSONArray args, final JSONObject options, final CallbackContext callbackContext) throws JSONException {
+		final String url = ACTION_LOAD_INLINE_PLAYER.equals(action) ? args.getString(0) : null;
+		final double seconds = ACTION_SEEK_INLINE_PLAYER.equals(action) ? args.getDouble(0) : 0;
+		final JSONObject actionOptions = ACTION_LOAD_INLINE_PLAYER.equals(action) ? options : args.optJSONObject(0);
+		final Bundle extras = toBundle(url, actionOptions);
+		if (ACTION_CREATE_INLINE_PLAYER.equals(action) && !validateOptions(extras, callbackContext)) {
+			return true;
+		}
+		DownloadTracker.load(cordova.getActivity());
+
+		cordova.getActivity().runOnUiThread((Runnable) () -> {
+			if (ACTION_CREATE_INLINE_PLAYER.equals(action)) {
+				destroyInlinePlayer();
+				PlayerPool.configure(extras);
+				inlinePlayer = new InlinePlayer(cordova.getActivity(), webView.getView(), extras);
+				callbackContext.success();
+				return;
+			}
+
+			if (inlinePlayer == null) {
+				callbackContext.error("No inline player, call createInlinePlayer first.");
+				return;
+			}
+
+			if (ACTION_LOAD_INLINE_PLAYER.equals(action)) {
+				inlinePlayer.load(url, extras, callbackContext);
+				return;
+			} else if (ACTION_SET_INLINE_PLAYER_RECT.equals(action)) {
+				inlinePlayer.setRect(extras);
+			} else if (ACTION_PLAY_INLINE_PLAYER.equals(action)) {
+				inlinePlayer.play();
+			} else if (ACTION_PAUSE_INLINE_PLAYER.equals(action)) {
+				inlinePlayer.pause();
+			} else if (ACTION_SEEK_INLINE_PLAYER.equals(action)) {
+				inlinePlayer.seekTo((long) (seconds * 1000));
+			} else if (ACTION_DESTROY_INLINE_PLAYER.equals(action)) {
+				destroyInlinePlayer();
+			}
+			callbackContext.success();
+		});
+		return true;
+	}
+
+	private void destroyInlinePlayer() {
+		if (inlinePlayer != null) {
+			inlinePlayer.destroy();
+			inlinePlayer = null;
+		}
+	}
+
+	@Override
+	public void onPause(boolean multitasking) {
+		if (inlinePlayer != null) {
+			inlinePlayer.onHostPause();
+		}
+	}
+
+	@Override
+	public void onResume(boolean multitasking) {
+		if (inlinePlayer != null) {
+			inlinePlayer.onHostResume();
+		}
+	}
+
+	@Override
+	public void onReset() {
+		// The page that owned the inline player and the event listener is gone.
+		clearQoeListener();
+		cordova.getActivity().runOnUiThread((Runnable) () -> {
+			destroyInlinePlayer();
+			PlaybackEvents.setCallback(null, 0);
+		});
+	}
+
+	@Override
+	public void onDestroy() {
+		clearQoeListener();
+		destroyInlinePlayer();
+		PlaybackEvents.setCallback(null, 0);
+	}
+
+	/** Forwards a live QoE snapshot to the listener registered with {@code setQoeListener}, if any. */
+	static void sendQoeUpdate(JSONObject qoe) {
+		StreamingMedia plugin = qoePlugin;
+		CallbackContext listener = plugin != null ? plugin.qoeCallbackContext : null;
+		if (listener == null) {
+			return;
+		}
+
+		PluginResult result = new PluginResult(PluginResult.Status.OK, qoe);
+		result.setKeepCallback(true);
+		listener.sendPluginResult(result);
+	}
+
+	private void clearQoeListener() {
+		qoeCallbackContext = null;
+		if (qoePlugin == this) {
+			qoePlugin = null;
+		}
+	}
+
 	private boolean playAudio(String url, JSONObject options) {
 		return play(SimpleAudioStream.class, url, options);
 	}
 
+	/** Applies pauseAudio, resumeAudio or stopAudio to the player of the audio service. */
+	private boolean controlAudio(final String action, final CallbackContext callbackContext) {
+		cordova.getActivity().runOnUiThread((Runnable) () -> {
+			Player player = StreamingAudioService.getPlayer();
+			if (player == null) {
+				callbackContext.error("No audio is playing.");
+				return;
+			}
+
+			if (ACTION_PAUSE_AUDIO.equals(action)) {
+				player.pause();
+			} else if (ACTION_RESUME_AUDIO.equals(action)) {
+				player.play();
+			} else {
+				player.stop();
+				player.clearMediaItems();
+			}
+			callbackContext.success();
+		});
+		return true;
+	}
+
 	private boolean playVideo(String url, JSONObject options) {
 		return play(SimpleVideoStream.class, url, options);
 	}
 
+	/** Plays a queue of URLs or {@code {url, startFrom}} items, passed to the activity as the {@code items} option. */
+	private boolean playVideoQueue(JSONArray items, JSONObject options) throws JSONException {
+		if (items.length() == 0) {
+			callbackContext.error("No items to play.");
+			return true;
+		}
+
+		Object first = items.get(0);
+		String url = first instanceof JSONObject ? ((JSONObject) first).getString("url") : items.getString(0);
+
+		options = options != null ? options : new JSONObject();
+		options.put("items", items);
+		return play(SimpleVideoStream.class, url, options);
+	}
+
+	private boolean downloadMedia(final String url, final JSONObject options, final CallbackContext callbackContext) {
+		final Bundle extras = toBundle(url, options);
+		resolveContentTypes(extras, () -> cordova.getActivity().runOnUiThread((Runnable) () ->
+				DownloadTracker.getInstance(cordova.getActivity()).download(url, extras, callbackContext)));
+		return true;
+	}
+
+	private boolean preloadVideo(final String url, final JSONObject options, final CallbackContext callbackContext) {
+		final Bundle extras = toBundle(url, options);
+		if (!validateOptions(extras, callbackContext)) {
+			return true;
+		}
+
+		resolveContentTypes(extras, () -> cordova.getActivity().runOnUiThread((Runnable) () -> {
+			PlayerPool.configure(extras);
+			VideoPreloader.preload(cordova.getActivity().getApplicationContext(), url, extras, callbackContext);
+		}));
+		return true;
+	}
+
 	private boolean play(final Class activityClass, final String url, final JSONObject options) {
 		final CordovaInterface cordovaObj = cordova;
 		final CordovaPlugin plugin = this;
+		final Bundle extras = toBundle(url, options);
+		if (!validateOptions(extras, callbackContext)) {
+			return true;
+		}
 
-		cordova.getActivity().runOnUiThread((Runnable) () -> {
+		resolveContentTypes(extras, () -> cordova.getActivity().runOnUiThread((Runnable) () -> {
 			final Intent streamIntent = new Intent(cordovaObj.getActivity().getApplicationContext(), activityClass);
-			Bundle extras = new Bundle();
-			extras.putString("mediaUrl", url);
+			PlayerPool.configure(extras);
+			streamIntent.putExtras(extras);
 
-			if (options != null) {
-				Iterator<String> optKeys = options.keys();
-				while (optKeys.hasNext()) {
-					try {
-						final String optKey = (String)optKeys.next();
-						if (options.get(optKey).getClass().equals(String.class)) {
-							extras.putString(optKey, (String)options.get(optKey));
-							Log.v(TAG, "Added option: " + optKey + " -> " + options.get(optKey));
-						} else if (options.get(optKey).getClass().equals(Boolean.class)) {
-							extras.putBoolean(optKey, (Boolean)options.get(optKey));
-							Log.v(TAG, "Added option: " + optKey + " -> " + options.get(optKey));
-						} else if (options.get(optKey).getClass().equals(Integer.class)) {
-							extras.putInt(optKey, (int)options.get(optKey));
-							Log.v(TAG, "Added option: " + optKey + " -> " + options.get(optKey));
-						}
+			cordovaObj.startActivityForResult(plugin, streamIntent, ACTIVITY_CODE_PLAY_MEDIA);
+		}));
+		return true;
+	}
 
-					} catch (JSONException e) {
-						Log.e(TAG, "JSONException while trying to read options. Skipping option.");
+	/**
+	 * Runs {@code then} once the content types of a play are known, probing them first if
+	 * {@code probeContentType} is set. Also loads the completed downloads, so the player finds its
+	 * downloaded copy without reading storage on the main thread.
+	 */
+	private void resolveContentTypes(final Bundle extras, final Runnable then) {
+		final Context context = cordova.getActivity().getApplicationContext();
+		ContentTypeResolver.load(context);
+		DownloadTracker.load(context);
+		if (!extras.getBoolean("probeContentType", false)) {
+			then.run();
+			return;
+		}
+
+		cordova.getThreadPool().execute(() -> {
+			ContentTypeResolver.probe(context, extras);
+			then.run();
+		});
+	}
+
+	private static boolean validateOptions(Bundle extras, CallbackContext callbackContext) {
+		try {
+			BufferPolicy.fromOptions(extras);
+			RetryPolicy.fromOptions(extras);
+			DataSaver.getMode(extras);
+		} catch (IllegalArgumentException e) {
+			callbackContext.error(e.getMessage());
+			return false;
+		}
+		return true;
+	}
+
+	private static Bundle toBundle(String url, JSONObject options) {
+		Bundle extras = new Bundle();
+		extras.putString("mediaUrl", url);
+
+		if (options != null) {
+			Iterator<String> optKeys = options.keys();
+			while (optKeys.hasNext()) {
+				try {
+					final String optKey = (String)optKeys.next();
+					if ("startFrom".equals(optKey) && options.get(optKey) instanceof Number) {
+						// Whole and fractional seconds alike, so the activities read it with getDouble.
+						extras.putDouble(optKey, ((Number) options.get(optKey)).doubleValue());
+						Log.v(TAG, "Added option: " + optKey + " -> " + options.get(optKey));
+					} else if (options.get(optKey).getClass().equals(String.class)) {
+						extras.putString(optKey, (String)options.get(optKey));
+						Log.v(TAG, "Added option: " + optKey + " -> " + options.get(optKey));
+					} else if (options.get(optKey).getClass().equals(Boolean.class)) {
+						extras.putBoolean(optKey, (Boolean)options.get(optKey));
+						Log.v(TAG, "Added option: " + optKey + " -> " + options.get(optKey));
+					} else if (options.get(optKey).getClass().equals(Integer.class)) {
+						extras.putInt(optKey, (int)options.get(optKey));
+						Log.v(TAG, "Added option: " + optKey + " -> " + options.get(optKey));
+					} else if (options.get(optKey).getClass().equals(Double.class)) {
+						extras.putDouble(optKey, (Double)options.get(optKey));
+						Log.v(TAG, "Added option: " + optKey + " -> " + options.get(optKey));
+					} else if (options.get(optKey) instanceof JSONArray || options.get(optKey) instanceof JSONObject) {
+						// Structured options travel as JSON text and are parsed by the activity.
+						extras.putString(optKey, options.get(optKey).toString());
+						Log.v(TAG, "Added option: " + optKey + " -> " + options.get(optKey));
 					}
+
+				} catch (JSONException e) {
+					Log.e(TAG, "JSONException while trying to read options. Skipping option.");
 				}
-				streamIntent.putExtras(extras);
 			}
+		}
 
-			cordovaObj.startActivityForResult(plugin, streamIntent, ACTIVITY_CODE_PLAY_MEDIA);
-		});
-		return true;
+		return extras;
 	}
 
 	public void onActivityResult(int requestCode, int resultCode, Intent intent) {
@@ -104,7 +410,13 @@ public class StreamingMedia extends CordovaPlugin {
 
 					JSONObject res = new JSONObject();
 					try {
-						res.put("finishAt", position / 1000);
+						res.put("finishAt", position / 1000.0);
+						if (intent.hasExtra("items")) {
+							res.put("items", new JSONArray(intent.getStringExtra("items")));
+						}
+						if (intent.hasExtra("qoe")) {
+							res.put("qoe", new JSONObject(intent.getStringExtra("qoe")));
+						}
 					} catch (JSONException e) {
 						e.printStackTrace();
 					}
@@ -0,0 +1,174 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultRenderersFactory;
+import androidx.media3.exoplayer.Renderer;
+import androidx.media3.exoplayer.text.SubtitleDecoderFactory;
+import androidx.media3.exoplayer.text.TextOutput;
+import androidx.media3.exoplayer.text.TextRenderer;
+import androidx.media3.extractor.text.DefaultSubtitleParserFactory;
+import androidx.media3.extractor.text.SimpleSubtitleDecoder;
+import androidx.media3.extractor.text.Subtitle;
+import androidx.media3.extractor.text.SubtitleDecoder;
+import androidx.media3.extractor.text.SubtitleParser;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Side-loaded subtitle tracks from the {@code subtitles} play option, a list of
+ * {@code {url, language, mime, label, default}}.
+ *
+ * <p>Every track is declared on the {@link MediaItem}, but a side-loaded track is only fetched once
+ * it is selected: subtitles are not parsed during extraction, so each one is a separate source that
+ * loads with its selection. Parsed tracks stay in memory by URL, so replaying a title or switching
+ * back to a language does not parse it again.
+ */
+@UnstableApi
+class SubtitleTracks {
+	private static final String TAG = "SubtitleTracks";
+	private static final String ID_PREFIX = "sideloaded:";
+	private static final int MAX_CACHED_TRACKS = 8;
+
+	private static final LruCache<String, Subtitle> cache = new LruCache<>(MAX_CACHED_TRACKS);
+
+	private SubtitleTracks() {}
+
+	/** Drops the parsed tracks, e.g. when memory runs low. */
+	public static void evictMemory() {
+		cache.evictAll();
+	}
+
+	/** Returns the {@code subtitles} play option, or null. */
+	@Nullable
+	public static JSONArray fromOptions(@Nullable Bundle options) {
+		String json = options != null ? options.getString("subtitles") : null;
+		if (json == null) {
+			return null;
+		}
+
+		try {
+			return new JSONArray(json);
+		} catch (JSONException e) {
+			Log.e(TAG, "Invalid subtitles option, ignoring it.");
+			return null;
+		}
+	}
+
+	/**
+	 * Adds side-loaded subtitle tracks to {@code mediaItem}.
+	 *
+	 * @param mediaItem The item to play.
+	 * @param subtitles The tracks, as in the {@code subtitles} option, or null.
+	 */
+	public static MediaItem attach(MediaItem mediaItem, @Nullable JSONArray subtitles) {
+		if (subtitles == null || subtitles.length() == 0) {
+			return mediaItem;
+		}
+
+		List<MediaItem.SubtitleConfiguration> configurations = new ArrayList<>();
+		for (int i = 0; i < subtitles.length(); i++) {
+			JSONObject subtitle = subtitles.optJSONObject(i);
+			String url = subtitle != null ? subtitle.optString("url", null) : null;
+			if (url == null) {
+				continue;
+			}
+			String mimeType = subtitle.optString("mime", null);
+			configurations.add(new MediaItem.SubtitleConfiguration.Builder(Uri.parse(url))
+					.setId(ID_PREFIX + url)
+					.setMimeType(mimeType != null ? mimeType : inferMimeType(url))
+					.setLanguage(subtitle.optString("language", null))
+					.setLabel(subtitle.optString("label", null))
+					.setSelectionFlags(subtitle.optBoolean("default", false) ? C.SELECTION_FLAG_DEFAULT : 0)
+					.build());
+		}
+		return mediaItem.buildUpon().setSubtitleConfigurations(configurations).build();
+	}
+
+	private static String inferMimeType(String url) {
+		String path = Uri.parse(url).getPath();
+		path = path != null ? path.toLowerCase() : "";
+		if (path.endsWith(".srt")) {
+			return MimeTypes.APPLICATION_SUBRIP;
+		} else if (path.endsWith(".ttml") || path.endsWith(".dfxp") || path.endsWith(".xml")) {
+			return MimeTypes.APPLICATION_TTML;
+		} else if (path.endsWith(".ssa") || path.endsWith(".ass")) {
+			return MimeTypes.TEXT_SSA;
+		}
+		return MimeTypes.TEXT_VTT;
+	}
+
+	/**
+	 * Renderers whose text renderer decodes unparsed subtitle samples, which side-loaded tracks are
+	 * when they are not parsed during extraction.
+	 */
+	static class RenderersFactory extends DefaultRenderersFactory {
+		RenderersFactory(Context context) {
+			super(context);
+		}
+
+		@Override
+		protected void buildTextRenderers(Context context, TextOutput output, Looper outputLooper, @ExtensionRendererMode int extensionRendererMode, ArrayList<Renderer> out) {
+			TextRenderer textRenderer = new TextRenderer(output, outputLooper, new DecoderFactory());
+			textRenderer.experimentalSetLegacyDecodingEnabled(true);
+			out.add(textRenderer);
+		}
+	}
+
+	/** Uses the caching decoder for side-loaded tracks, the default decoders for in-stream text. */
+	private static class DecoderFactory implements SubtitleDecoderFactory {
+		private final SubtitleParser.Factory parserFactory = new DefaultSubtitleParserFactory();
+
+		@Override
+		public boolean supportsFormat(Format format) {
+			return SubtitleDecoderFactory.DEFAULT.supportsFormat(format);
+		}
+
+		@Override
+		public SubtitleDecoder createDecoder(Format format) {
+			if (format.id != null && format.id.startsWith(ID_PREFIX) && parserFactory.supportsFormat(format)) {
+				return new CachingDecoder(format.id, parserFactory.create(format));
+			}
+			return SubtitleDecoderFactory.DEFAULT.createDecoder(format);
+		}
+	}
+
+	private static class CachingDecoder extends SimpleSubtitleDecoder {
+		private final String key;
+		private final SubtitleParser parser;
+
+		CachingDecoder(String key, SubtitleParser parser) {
+			super("CachingSubtitleDecoder");
+			this.key = key;
+			this.parser = parser;
+		}
+
+		@Override
+		protected Subtitle decode(byte[] data, int length, boolean reset) {
+			Subtitle subtitle = cache.get(key);
+			if (subtitle != null) {
+				return subtitle;
+			}
+
+			if (reset) {
+				parser.reset();
+			}
+			subtitle = parser.parseToLegacySubtitle(data, 0, length);
+			cache.put(key, subtitle);
+			return subtitle;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package com.hutchind.cordova.plugins.streamingmedia;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.cordova.CallbackContext;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Keeps prepared, paused players for URLs that are likely to be played next, so a later
+ * {@link SimpleVideoStream} launch can start from an already resolved manifest and buffer.
+ *
+ * <p>All methods must be called on the main thread, which is also the application thread of the
+ * players created here.
+ */
+@UnstableApi
+class VideoPreloader {
+	private static final String TAG = "VideoPreloader";
+
+	private static final int MAX_PRELOADED = 2;
+	private static final int DEFAULT_PRELOAD_DURATION_MS = 5 * 1000;
+	private static final int DEFAULT_EXPIRY_MS = 60 * 1000;
+
+	private static final Map<String, Entry> entries = new LinkedHashMap<>();
+	private static final Handler handler = new Handler(Looper.getMainLooper());
+
+	private VideoPreloader() {}
+
+	/**
+	 * Prepares a paused player for {@code url} and buffers the first few seconds.
+	 *
+	 * @param context A {@link Context}.
+	 * @param url The media URL, also used as the key for {@link #take}.
+	 * @param options The play options, as passed to {@link SimpleVideoStream}.
+	 * @param callbackContext Notified once the first seconds are buffered, or on error.
+	 */
+	public static void preload(Context context, String url, Bundle options, CallbackContext callbackContext) {
+		Entry existing = entries.get(url);
+		if (existing != null) {
+			scheduleExpiry(existing, options);
+			existing.notifyWhenReady(callbackContext);
+			return;
+		}
+
+		while (entries.size() >= MAX_PRELOADED) {
+			Iterator<Entry> oldest = entries.values().iterator();
+			Entry evicted = oldest.next();
+			oldest.remove();
+			evicted.release();
+		}
+
+		ExoPlayer player = PlayerPool.acquire(context, options);
+		StreamingLoadControl loadControl = PlayerPool.getLoadControl(player);
+		loadControl.setPreloadLimitMs(options.getInt("preloadDurationMs", DEFAULT_PRELOAD_DURATION_MS));
+
+		Entry entry = new Entry(url, player, loadControl);
+		entries.put(url, entry);
+
+		player.addListener(entry);
+		player.setMediaItem(SubtitleTracks.attach(PlayerManager.buildMediaItem(url, options), SubtitleTracks.fromOptions(options)));
+		player.setPlayWhenReady(false);
+		player.prepare();
+
+		scheduleExpiry(entry, options);
+		entry.notifyWhenReady(callbackContext);
+	}
+
+	/**
+	 * Hands over the preloaded player for {@code url}, if any. The caller becomes its owner and is
+	 * responsible for releasing it, and should replace its media item with its own.
+	 *
+	 * <p>A player preloaded with cache, buffering, network or retry options other than
+	 * {@code options} is released instead, since {@link PlayerPool} would not hand it out for them.
+	 *
+	 * @param context A {@link Context}.
+	 * @param url The media URL.
+	 * @param options The options the caller would acquire its player with.
+	 * @return The prepared player with regular buffering restored, or null.
+	 */
+	public static ExoPlayer take(Context context, String url, Bundle options) {
+		Entry entry = entries.remove(url);
+		if (entry == null) {
+			return null;
+		}
+		if (!PlayerPool.isCompatible(context, entry.player, options)) {
+			Log.v(TAG, "Preloaded player for " + url + " does not match the play options");
+			entry.release();
+			return null;
+		}
+
+		handler.removeCallbacks(entry.expiry);
+		entry.player.removeListener(entry);
+		entry.loadControl.clearPreloadLimit();
+		entry.resolvePending();
+		Log.v(TAG, "Reusing preloaded player for " + url);
+		return entry.player;
+	}
+
+	private static void scheduleExpiry(Entry entry, Bundle options) {
+		handler.removeCallbacks(entry.expiry);
+		handler.postDelayed(entry.expiry, options.getInt("preloadExpiryMs", DEFAULT_EXPIRY_MS));
+	}
+
+	private static class Entry implements Player.Listener {
+		private final String url;
+		private final ExoPlayer player;
+		private final StreamingLoadControl loadControl;
+		private final Runnable expiry;
+
+		private CallbackContext pendingCallback;
+		private final long startedAtMs = System.currentTimeMillis();
+
+		Entry(String url, ExoPlayer player, StreamingLoadControl loadControl) {
+			this.url = url;
+			this.player = player;
+			this.loadControl = loadControl;
+			this.expiry = () -> {
+				if (entries.remove(url) != null) {
+					Log.v(TAG, "Preloaded player expired for " + url);
+					release();
+				}
+			};
+		}
+
+		void notifyWhenReady(CallbackContext callbackContext) {
+			if (player.getPlaybackState() == Player.STATE_READY) {
+				callbackContext.success(buildResult());
+			} else {
+				if (pendingCallback != null) {
+					pendingCallback.error("Preload of " + url + " was requested again.");
+				}
+				pendingCallback = callbackContext;
+			}
+		}
+
+		void release() {
+			handler.removeCallbacks(expiry);
+			player.removeListener(this);
+			PlayerPool.release(player);
+			if (pendingCallback != null) {
+				pendingCallback.error("Preload of " + url + " was cancelled.");
+				pendingCallback = null;
+			}
+		}
+
+		void resolvePending() {
+			if (pendingCallback != null) {
+				pendingCallback.success(buildResult());
+				pendingCallback = null;
+			}
+		}
+
+		@Override
+		public void onPlaybackStateChanged(@Player.State int playbackState) {
+			if (playbackState == Player.STATE_READY) {
+				resolvePending();
+			}
+		}
+
+		@Override
+		public void onPlayerError(PlaybackException error) {
+			Log.e(TAG, "Preload failed for " + url + ": " + error.getMessage());
+			entries.remove(url);
+			if (pendingCallback != null) {
+				pendingCallback.error(error.getMessage());
+				pendingCallback = null;
+			}
+			release();
+		}
+
+		private JSONObject buildResult() {
+			JSONObject res = new JSONObject();
+			try {
+				res.put("url", url);
+				res.put("bufferedMs", player.getTotalBufferedDuration());
+				res.put("preloadTimeMs", System.currentTimeMillis() - startedAtMs);
+			} catch (JSONException e) {
+				e.printStackTrace();
+			}
+			return res;
+		}
+	}
+}
@@ -22,11 +22,94 @@ StreamingMedia.prototype.stopAudio = function (options) {
     cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "stopAudio", [options]);
 };
 
+StreamingMedia.prototype.setEventListener = function (callback, options) {
+	options = options || {};
+	cordova.exec(callback, options.errorCallback || null, "StreamingMedia", "setEventListener", [options]);
+};
+
 StreamingMedia.prototype.playVideo = function (url, options) {
 	options = options || {};
+	if (options.qoeCallback) {
+		cordova.exec(options.qoeCallback, null, "StreamingMedia", "setQoeListener", []);
+		options.qoeUpdates = true;
+	}
 	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "playVideo", [url, options]);
 };
 
+StreamingMedia.prototype.preloadVideo = function (url, options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "preloadVideo", [url, options]);
+};
+
+StreamingMedia.prototype.downloadMedia = function (url, options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "downloadMedia", [url, options]);
+};
+
+StreamingMedia.prototype.removeDownload = function (url, options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "removeDownload", [url, options]);
+};
+
+StreamingMedia.prototype.listDownloads = function (options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "listDownloads", [options]);
+};
+
+StreamingMedia.prototype.getResumePosition = function (url, options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "getResumePosition", [url, options]);
+};
+
+StreamingMedia.prototype.clearResumePosition = function (url, options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "clearResumePosition", [url, options]);
+};
+
+StreamingMedia.prototype.createInlinePlayer = function (options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "createInlinePlayer", [options]);
+};
+
+StreamingMedia.prototype.setInlinePlayerRect = function (rect, options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "setInlinePlayerRect", [rect]);
+};
+
+StreamingMedia.prototype.loadInlinePlayer = function (url, options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "loadInlinePlayer", [url, options]);
+};
+
+StreamingMedia.prototype.playInlinePlayer = function (options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "playInlinePlayer", [options]);
+};
+
+StreamingMedia.prototype.pauseInlinePlayer = function (options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "pauseInlinePlayer", [options]);
+};
+
+StreamingMedia.prototype.seekInlinePlayer = function (seconds, options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "seekInlinePlayer", [seconds, options]);
+};
+
+StreamingMedia.prototype.destroyInlinePlayer = function (options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "destroyInlinePlayer", [options]);
+};
+
+StreamingMedia.prototype.getCacheStats = function (options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "getCacheStats", [options]);
+};
+
+StreamingMedia.prototype.getNetworkStats = function (options) {
+	options = options || {};
+	cordova.exec(options.successCallback || null, options.errorCallback || null, "StreamingMedia", "getNetworkStats", [options]);
+};
 
 StreamingMedia.install = function () {
 	if (!window.plugins) {